@@ -1,103 +1,176 @@
 package tsp.app;
 
-import tsp.graph.Edge;
 import tsp.graph.Graph;
+import tsp.graph.NeighborLists;
 import tsp.graph.Node;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 
+/**
+ * Ant building tours of the graph one node at a time. All state is kept in primitive arrays
+ * that are reused from one tour to the next: the tour itself, the unvisited nodes (removed by
+ * swapping with the last entry) and the roulette weights of the candidate nodes. The tour
+ * length is accumulated as nodes are added, so building a tour allocates nothing once the
+ * arrays have been sized for the graph.
+ */
 public class Agent {
 
     private Graph _graph;
-    private List<Node> _currentTour = new ArrayList<Node>();
-    private List<Node> _remainingNodes = new ArrayList<Node>();
-    private List<Node> _lastCompletedTour = new ArrayList<Node>();
-    private long _lastCompletedTourLength = 0;
-    private Random _rand = new Random();
+    private PheromoneMatrix _pheromones;
+    private NeighborLists _candidates;
+    private Random _rand;
 
-    public Agent(Graph graph) {
+    // Tour built so far (open; the edge back to the first node is implied)
+    private int[] _tour = new int[0];
+    private int _tourSize = 0;
+    private long _tourLength = 0;
+
+    // Unvisited nodes in _unvisited[0.._unvisitedCount), with the position of each node in the array
+    private int[] _unvisited = new int[0];
+    private int[] _unvisitedPositions = new int[0];
+    private int _unvisitedCount = 0;
+
+    // Roulette weights of the candidate neighbours of the current node
+    private double[] _weights = new double[0];
+
+    public Agent(Graph graph, PheromoneMatrix pheromones, NeighborLists candidates, long seed) {
         _graph = graph;
+        _pheromones = pheromones;
+        _candidates = candidates;
+        _rand = new Random(seed);
     }
 
     /**
      * Resets the agent to prepare for another tour of the graph.
      */
     public void reset() {
-        _currentTour.clear();
-        _remainingNodes.clear();
+        _tourSize = 0;
+        _tourLength = 0;
+        _unvisitedCount = 0;
+    }
+
+    /**
+     * Resets the agent and has it follow a new set of pheromone trails and candidate lists.
+     */
+    public void reset(PheromoneMatrix pheromones, NeighborLists candidates) {
+        _pheromones = pheromones;
+        _candidates = candidates;
+        reset();
     }
 
     /**
      * Advances the agent one node in its tour of the graph.
-     * Returns true if agent is done with its tours. 
      */
     public void update() {
 
-        if (_currentTour.isEmpty()) {
+        if (_tourSize == 0) {
             // Not on any tour yet? Start this agent at a random node in the graph
-            _remainingNodes = new ArrayList<Node>(_graph.getNodes());
-            if (_remainingNodes.isEmpty()) return;
+            int nodeCount = _pheromones.getNodeCount();
+            if (nodeCount == 0) return;
 
-            int startNodeIndex = _rand.nextInt(_remainingNodes.size());
-            _currentTour.add(_remainingNodes.remove(startNodeIndex));
+            if (_tour.length != nodeCount) {
+                _tour = new int[nodeCount];
+                _unvisited = new int[nodeCount];
+                _unvisitedPositions = new int[nodeCount];
+            }
+            if (_weights.length != _candidates.size()) {
+                _weights = new double[_candidates.size()];
+            }
+            for (int id = 0; id < nodeCount; id++) {
+                _unvisited[id] = id;
+                _unvisitedPositions[id] = id;
+            }
+            _unvisitedCount = nodeCount;
+
+            visit(_rand.nextInt(nodeCount));
         }
 
-        if (!_remainingNodes.isEmpty()) {
+        if (_unvisitedCount > 0) {
             // We still have nodes to visit, so find the best one to visit next!
 
             // Retrieve the last node we visited and figure out the next one to go to
-            Node currentNode = _currentTour.get(_currentTour.size() - 1);
-            Node nextNode = null;
+            int currentNode = _tour[_tourSize - 1];
+            int nextNode;
 
             double val = _rand.nextDouble();
             if (val < TSPSolver.Q0_PARAM) {
                 // Choose the highest weighted pheromone trail to follow
-                nextNode = pickHighestWeightedNode(currentNode, _remainingNodes);
+                nextNode = pickHighestWeightedNode(currentNode);
             }
             else {
                 // Pick a edge using a random chance based on pheromone levels
-                nextNode = pickRandomWeightedNode(currentNode, _remainingNodes);
+                nextNode = pickRandomWeightedNode(currentNode);
             }
 
-            if (nextNode == null) {
-                // Next node is still null, so pick a node at random
-                nextNode = pickRandomNode(currentNode, _remainingNodes);
+            if (nextNode == -1) {
+                // Next node is still unknown, so pick a node at random
+                nextNode = pickRandomNode();
             }
 
-            _currentTour.add(nextNode);
-            _remainingNodes.remove(nextNode);
-            if (_remainingNodes.isEmpty()) {
+            _tourLength += _graph.distance(currentNode, nextNode);
+            visit(nextNode);
+            if (_unvisitedCount == 0) {
                 // We're at the end of the tour? Go back to the start!
-                _currentTour.add(_currentTour.get(0));
-
-                _lastCompletedTour.clear();
-                _lastCompletedTour.addAll(_currentTour);
-                _lastCompletedTourLength = _graph.calculatePathLength(_lastCompletedTour);
+                _tourLength += _graph.distance(nextNode, _tour[0]);
             }
         }
     }
 
+    /**
+     * Appends the node to the tour and removes it from the unvisited nodes.
+     */
+    private void visit(int node) {
+        _tour[_tourSize++] = node;
+
+        int position = _unvisitedPositions[node];
+        int last = _unvisited[--_unvisitedCount];
+        _unvisited[position] = last;
+        _unvisitedPositions[last] = position;
+        _unvisited[_unvisitedCount] = node;
+        _unvisitedPositions[node] = _unvisitedCount;
+    }
+
+    private boolean isVisited(int node) {
+        return _unvisitedPositions[node] >= _unvisitedCount;
+    }
+
     /**
      * Returns a boolean indicating if the agent is done with its tour.
      */
     public boolean complete() {
-        return (!_currentTour.isEmpty() && _remainingNodes.isEmpty());
+        return (_tourSize > 0 && _unvisitedCount == 0);
     }
 
     /**
      * Choose the path with the highest pheromone weight to follow from the current node.
+     * Only the unvisited candidate neighbours are considered unless they have all been visited.
+     * Returns -1 if no trail can be followed.
      */
-    private Node pickHighestWeightedNode(Node currentNode, List<Node> remainingNodes) {
+    private int pickHighestWeightedNode(int currentNode) {
         // Find highest weighted pheromone edge from this node and follow it
-        Node bestNode = null;
+        int bestNode = -1;
         double highestPheromoneWeight = 0;
-        for (Node node : _remainingNodes) {
-            double pheromoneWeight = calculateAdjustedPheromoneWeight(currentNode, node);
-            if (pheromoneWeight != 0 && (bestNode == null || pheromoneWeight > highestPheromoneWeight)) {
+        for (int i = 0; i < _candidates.size(); i++) {
+            int node = _candidates.get(currentNode, i);
+            if (isVisited(node)) continue;
+
+            double pheromoneWeight = _pheromones.getChoiceInfo(currentNode, node);
+            if (pheromoneWeight != 0 && (bestNode == -1 || pheromoneWeight > highestPheromoneWeight)) {
+                bestNode = node;
+                highestPheromoneWeight = pheromoneWeight;
+            }
+        }
+        if (bestNode != -1) {
+            return bestNode;
+        }
+
+        // Every candidate has been visited, so fall back to all remaining nodes
+        for (int i = 0; i < _unvisitedCount; i++) {
+            int node = _unvisited[i];
+            double pheromoneWeight = _pheromones.getChoiceInfo(currentNode, node);
+            if (pheromoneWeight != 0 && (bestNode == -1 || pheromoneWeight > highestPheromoneWeight)) {
                 bestNode = node;
                 highestPheromoneWeight = pheromoneWeight;
             }
@@ -107,39 +180,46 @@ public class Agent {
     }
 
     /**
-     * Randomly pick the next node to follow using the pheromone values to weight the random selection.
+     * Randomly pick the next node to follow among the unvisited candidate neighbours, using the
+     * pheromone values to weight the random selection. Follows the highest weighted trail once
+     * every candidate has been visited.
      */
-    private Node pickRandomWeightedNode(Node currentNode, List<Node> remainingNodes) {
-        // Calculate the probability of choosing each remaining node
-        Node nextNode = null;
-        Map<Node, Double> probMap = calculateRandomProportionRule(currentNode, _remainingNodes);
-        double probValue = _rand.nextDouble();
+    private int pickRandomWeightedNode(int currentNode) {
         double sumValue = 0;
-        Node lastNode = null;
-        for (Node node : probMap.keySet()) {
-            lastNode = node;
-            sumValue += probMap.get(node);
-            if (sumValue >= probValue) {
-                nextNode = node;
-                break;
-            }
+        for (int i = 0; i < _candidates.size(); i++) {
+            int node = _candidates.get(currentNode, i);
+            double weight = isVisited(node) ? 0 : _pheromones.getChoiceInfo(currentNode, node);
+            _weights[i] = weight;
+            sumValue += weight;
+        }
+        if (sumValue <= Double.MIN_VALUE) {
+            return pickHighestWeightedNode(currentNode);
         }
-        if (nextNode == null) nextNode = lastNode;
-        return nextNode;
+
+        double probValue = _rand.nextDouble() * sumValue;
+        int lastNode = -1;
+        for (int i = 0; i < _candidates.size(); i++) {
+            if (_weights[i] == 0) continue;
+
+            lastNode = _candidates.get(currentNode, i);
+            probValue -= _weights[i];
+            if (probValue <= 0) break;
+        }
+        return lastNode;
     }
 
-    private Node pickRandomNode(Node currentNode, List<Node> remainingNodes) {
-        int randIndex = _rand.nextInt(remainingNodes.size());
-        return remainingNodes.get(randIndex);
+    private int pickRandomNode() {
+        return _unvisited[_rand.nextInt(_unvisitedCount)];
     }
 
     @SuppressWarnings("unused")
-    private Node pickClosestNode(Node currentNode, List<Node> remainingNodes) {
-        Node closestNode = null;
+    private int pickClosestNode(int currentNode) {
+        int closestNode = -1;
         long closestDistance = 0;
-        for (Node node : remainingNodes) {
-            long distance = currentNode.distance(node);
-            if (closestNode == null || distance < closestDistance) {
+        for (int i = 0; i < _unvisitedCount; i++) {
+            int node = _unvisited[i];
+            long distance = _graph.distance(currentNode, node);
+            if (closestNode == -1 || distance < closestDistance) {
                 closestNode = node;
                 closestDistance = distance;
             }
@@ -148,28 +228,25 @@ public class Agent {
     }
 
     /**
-     * Returns the current tour the agent is on.
+     * Returns a copy of the current tour as a closed path of nodes. Allocates, so callers should
+     * only ask for it once the tour is known to be worth keeping.
      */
     public List<Node> getTour() {
-        return new ArrayList<Node>(_currentTour);
+        return _graph.toPath(getTourOrder());
     }
 
     /**
-     * Returns the most recently completed tour by this agent.
+     * Returns a copy of the current tour as an ordering of node ids.
      */
-    public List<Node> getLastCompletedTour() {
-        return new ArrayList<Node>(_lastCompletedTour);
+    public int[] getTourOrder() {
+        return Arrays.copyOf(_tour, _tourSize);
     }
 
     /**
-     * Returns the distance of the tour returned from getTour()
+     * Returns the length of the current tour (including the edge back to the start once complete).
      */
     public long getTourDistance() {
-        return _graph.calculatePathLength(_currentTour);
-    }
-
-    public long getLastCompletedTourDistance() {
-        return _lastCompletedTourLength;
+        return _tourLength;
     }
 
     /**
@@ -178,68 +255,12 @@ public class Agent {
     public void updateEdgeLocal() {
         if (!complete()) return;
 
-        for (int i = 0; i < _currentTour.size() - 1; i++) {
-            Node node1 = _currentTour.get(i);
-            Node node2 = _currentTour.get(i + 1);
-            Edge edge = node1.getEdge(node2);
-            double pheromoneWeight = edge.getPheromoneWeight();
+        for (int i = 0; i < _tourSize; i++) {
+            int id1 = _tour[i];
+            int id2 = _tour[(i + 1 < _tourSize) ? i + 1 : 0];
+            double pheromoneWeight = _pheromones.get(id1, id2);
             pheromoneWeight = (1 - TSPSolver.DECAY_VALUE) * pheromoneWeight + TSPSolver.INCREASE_WEIGHT;
-            edge.setPheromoneWeight(pheromoneWeight);
+            _pheromones.set(id1, id2, pheromoneWeight);
         }
     }
-
-    /**
-     * Returns a map giving the probabilities to visit each node in the remaining nodes list
-     * from the specified node.
-     */
-    private Map<Node, Double> calculateRandomProportionRule(Node nextNode, List<Node> remainingNodes) {
-        Map<Node, Double> probabilityMap = new LinkedHashMap<Node, Double>();
-
-        for (Node sNode : remainingNodes) {
-
-            // Calculate the numerator values
-            double numerator = calculateAdjustedPheromoneWeight(nextNode, sNode);
-
-            // Calculate the denominator values
-            double denominator = 0;
-            for (Node uNode : remainingNodes) {
-                denominator += calculateAdjustedPheromoneWeight(nextNode, uNode);
-            }
-
-            if (numerator > Double.MIN_VALUE && denominator > Double.MIN_VALUE) {
-                double nodeProbability = numerator / denominator;
-                probabilityMap.put(sNode, nodeProbability);
-            }
-        }
-
-        // Normalize probability map to add up to 1.0 for easier random picking
-        double sumProbability = 0;
-        for (Node node : probabilityMap.keySet()) {
-            double nodeProbability = probabilityMap.get(node);
-            sumProbability += nodeProbability;
-        }
-
-        for (Node node : probabilityMap.keySet()) {
-            double nodeProbability = probabilityMap.get(node);
-            nodeProbability = (nodeProbability / sumProbability) * 1.0;
-            probabilityMap.put(node, nodeProbability);
-        }
-
-        return probabilityMap;
-    }
-
-    private double calculateAdjustedPheromoneWeight(Node node1, Node node2) {
-        double t = getPheromoneWeight(node1, node2);
-        double n = Math.pow(getInverseDistance(node1, node2), TSPSolver.DISTANCE_WEIGHT);
-        double value = t * n;
-        return (value > Double.MIN_VALUE) ? value : 0;
-    }
-
-    private double getPheromoneWeight(Node node1, Node node2) {
-        return node1.getEdge(node2).getPheromoneWeight();
-    }
-
-    private double getInverseDistance(Node node1, Node node2) {
-        return 1.0d / node1.distance(node2);
-    }
 }
@@ -0,0 +1,14 @@
+package tsp.app;
+
+/**
+ * Algorithms the solver can run against a graph.
+ */
+public enum Algorithm {
+    NONE,
+    ANTS,
+    HILL_CLIMBING,
+    TWO_OPT,
+    THREE_OPT,
+    LIN_KERNIGHAN,
+    OR_OPT;
+}
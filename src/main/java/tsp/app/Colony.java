@@ -0,0 +1,182 @@
+package tsp.app;
+
+import tsp.graph.BestTour;
+import tsp.graph.Graph;
+import tsp.graph.NeighborLists;
+import tsp.graph.Node;
+import tsp.solver.OrOpt;
+import tsp.solver.Tour;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Colony of ants (agents) touring the graph. Each ant builds its tour as a separate task on a
+ * pool of worker threads using its own random number generator. Pheromone trails are only read
+ * while tours are being built; they are updated on the calling thread once every ant has
+ * completed its tour, which is the only point where the workers are synchronised.
+ */
+public class Colony {
+
+    private Graph _graph;
+    private List<Agent> _agents = new ArrayList<Agent>();
+    private PheromoneMatrix _pheromones;
+    private NeighborLists _candidates;
+    private List<Callable<Void>> _tasks = new ArrayList<Callable<Void>>();
+    private int _maxSteps = 0;
+    private OrOpt _polisher = null;
+    private ExecutorService _executor;
+
+    public Colony(Graph graph, int numAgents, long seed) {
+        _graph = graph;
+        _pheromones = new PheromoneMatrix(graph, TSPSolver.INIT_WEIGHT, TSPSolver.DISTANCE_WEIGHT);
+        _candidates = graph.getNeighborLists(TSPSolver.NEIGHBOR_COUNT);
+
+        Random seeds = new Random(seed);
+        for (int i = 0; i < numAgents; i++) {
+            Agent agent = new Agent(graph, _pheromones, _candidates, seeds.nextLong());
+            _agents.add(agent);
+            _tasks.add(() -> {
+                for (int steps = 0; !agent.complete() && (_maxSteps <= 0 || steps < _maxSteps); steps++) {
+                    agent.update();
+                }
+                return null;
+            });
+        }
+
+        int numThreads = Math.max(1, Math.min(numAgents, Runtime.getRuntime().availableProcessors()));
+        _executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+            Thread thread = new Thread(runnable, "ant-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the pheromone trails laid by the colony.
+     */
+    public PheromoneMatrix getPheromones() {
+        return _pheromones;
+    }
+
+    /**
+     * Returns the candidate lists (nearest neighbours of each node) the ants choose their next node from.
+     */
+    public NeighborLists getCandidates() {
+        return _candidates;
+    }
+
+    /**
+     * Advances every ant by at most maxSteps nodes (or until its tour is complete if maxSteps is 0),
+     * with the ants running in parallel. Once all ants have completed their tours the pheromone
+     * trails are updated and the ants are reset for their next tour.
+     */
+    public void update(int maxSteps) {
+        if (_pheromones.getNodeCount() != _graph.getNodeCount()) {
+            // Nodes were added to the graph, so restart every ant on a fresh set of trails
+            _pheromones = new PheromoneMatrix(_graph, TSPSolver.INIT_WEIGHT, TSPSolver.DISTANCE_WEIGHT);
+            _candidates = _graph.getNeighborLists(TSPSolver.NEIGHBOR_COUNT);
+            for (Agent agent : _agents) {
+                agent.reset(_pheromones, _candidates);
+            }
+        }
+
+        if (_pheromones.getNodeCount() < 2) return;
+
+        _maxSteps = maxSteps;
+        try {
+            for (Future<Void> future : _executor.invokeAll(_tasks)) {
+                future.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException("Ant failed to build its tour", e.getCause());
+        }
+
+        boolean allComplete = true;
+        for (Agent agent : _agents) {
+            allComplete &= agent.complete();
+        }
+
+        if (allComplete) {
+            // Only the best tour of this round can improve on the best path so far
+            Agent roundBest = _agents.get(0);
+            for (Agent agent : _agents) {
+                if (agent.getTourDistance() < roundBest.getTourDistance()) {
+                    roundBest = agent;
+                }
+            }
+            publishTour(roundBest);
+
+            for (Agent agent : _agents) {
+                // Perform local pheromone updating
+                agent.updateEdgeLocal();
+                agent.reset();
+            }
+
+            // Perform global pheromone updating
+            updateEdgeGlobal();
+        }
+    }
+
+    /**
+     * Sets the local search used to polish the best tour of each round before it is compared
+     * with the best path (null to disable polishing).
+     */
+    public void setPolisher(OrOpt polisher) {
+        _polisher = polisher;
+    }
+
+    /**
+     * Makes the agent's tour (polished first, if enabled) the best path if it is better than
+     * the best path so far. The tour is only copied out of the agent when it might be.
+     */
+    private void publishTour(Agent agent) {
+        long bestPathLength = _graph.getBestPathLength();
+        if (_polisher != null) {
+            Tour tour = new Tour(agent.getTourOrder());
+            _polisher.polish(tour);
+            if (bestPathLength == 0 || tour.length(_graph) < bestPathLength) {
+                _graph.setBestPath(_graph.toPath(tour.toArray()));
+            }
+        }
+        else if (bestPathLength == 0 || agent.getTourDistance() < bestPathLength) {
+            _graph.setBestPath(agent.getTour());
+        }
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void shutdown() {
+        _executor.shutdownNow();
+    }
+
+    private void updateEdgeGlobal() {
+
+        BestTour bestTour = _graph.getBestTour();
+        List<Node> path = bestTour.getPath();
+        double pathLength = bestTour.getLength();
+
+        // Evaporate every trail at once (applied lazily by the pheromone matrix)
+        _pheromones.evaporate(1 - TSPSolver.DECAY_VALUE);
+
+        // Then increase the pheromone level of the edges in the best path
+        for (int i = 0; i < path.size() - 1; i++) {
+            int id1 = path.get(i).getId();
+            int id2 = path.get(i + 1).getId();
+            double pheromoneWeight = _pheromones.get(id1, id2) + TSPSolver.DECAY_VALUE * (1 / pathLength);
+            _pheromones.set(id1, id2, pheromoneWeight);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package tsp.app;
+
+/**
+ * Describes a new best tour found by the solver: its length, the time (in ns) since the
+ * algorithm was started, the algorithm that found it and the solver step it was found in.
+ */
+public final class ImprovementEvent {
+
+    private final long _length;
+    private final long _elapsedNanos;
+    private final Algorithm _algorithm;
+    private final long _iteration;
+
+    public ImprovementEvent(long length, long elapsedNanos, Algorithm algorithm, long iteration) {
+        _length = length;
+        _elapsedNanos = elapsedNanos;
+        _algorithm = algorithm;
+        _iteration = iteration;
+    }
+
+    public long getLength() {
+        return _length;
+    }
+
+    public long getElapsedNanos() {
+        return _elapsedNanos;
+    }
+
+    public Algorithm getAlgorithm() {
+        return _algorithm;
+    }
+
+    public long getIteration() {
+        return _iteration;
+    }
+}
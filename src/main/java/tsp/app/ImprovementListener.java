@@ -0,0 +1,11 @@
+package tsp.app;
+
+/**
+ * Receives an event whenever the solver finds a new best tour. Events are delivered in order
+ * on a separate dispatch thread, so listeners never hold up the solver (and must hand any
+ * Swing work over to the event dispatch thread themselves).
+ */
+public interface ImprovementListener {
+
+    void improvementFound(ImprovementEvent event);
+}
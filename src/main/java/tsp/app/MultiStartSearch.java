@@ -0,0 +1,167 @@
+package tsp.app;
+
+import tsp.graph.Graph;
+import tsp.graph.Node;
+import tsp.solver.ChristofidesTour;
+import tsp.solver.GreedyEdgeTour;
+import tsp.solver.LinKernighan;
+import tsp.solver.LocalSearch;
+import tsp.solver.OrOpt;
+import tsp.solver.SpaceFillingCurveTour;
+import tsp.solver.SwapHillClimbing;
+import tsp.solver.ThreeOpt;
+import tsp.solver.TwoOpt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a number of independent construction + local search pipelines (see SearchPipeline) for one
+ * of the local search algorithms. The first pipeline starts from the best tour (or, if there is
+ * none yet or a new tour is asked for, one built with the selected construction heuristic); the
+ * others build their own random start tours. With more than one pipeline each update runs every
+ * pipeline for the same time slice as a separate task on a pool of worker threads.
+ */
+public class MultiStartSearch {
+
+    private Graph _graph;
+    private StartTour _startTour;
+    private boolean _buildStartTour;
+    private List<SearchPipeline> _pipelines = new ArrayList<SearchPipeline>();
+    private List<Callable<Void>> _tasks = new ArrayList<Callable<Void>>();
+    private long _deadline = 0;
+    private ExecutorService _executor = null;
+
+    public MultiStartSearch(Graph graph, Algorithm algorithm, int numPipelines, long seed,
+                            boolean firstImprovement, boolean iterated, StartTour startTour, boolean buildStartTour) {
+        _graph = graph;
+        _startTour = startTour;
+        _buildStartTour = buildStartTour;
+
+        // Build the shared candidate lists up front so the workers only ever read them
+        graph.getNeighborLists(TSPSolver.NEIGHBOR_COUNT);
+
+        double randomEdgeChance = algorithm.equals(Algorithm.HILL_CLIMBING) ? 0.05d : 0.20d;
+        Random seeds = new Random(seed);
+        for (int i = 0; i < Math.max(1, numPipelines); i++) {
+            LocalSearch localSearch = createLocalSearch(graph, algorithm, firstImprovement);
+            SearchPipeline pipeline = new SearchPipeline(graph, localSearch, randomEdgeChance, iterated, seeds.nextLong());
+            _pipelines.add(pipeline);
+            _tasks.add(() -> {
+                pipeline.run(_deadline);
+                return null;
+            });
+        }
+
+        if (_pipelines.size() > 1) {
+            int numThreads = Math.min(_pipelines.size(), Runtime.getRuntime().availableProcessors());
+            _executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+                Thread thread = new Thread(runnable, "search-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Creates a new instance of the local search engine used by the specified algorithm.
+     */
+    private static LocalSearch createLocalSearch(Graph graph, Algorithm algorithm, boolean firstImprovement) {
+        switch (algorithm) {
+            case HILL_CLIMBING:
+                SwapHillClimbing swapHillClimbing = new SwapHillClimbing(graph);
+                swapHillClimbing.setFirstImprovement(firstImprovement);
+                return swapHillClimbing;
+            case TWO_OPT:
+                TwoOpt twoOpt = new TwoOpt(graph, TSPSolver.NEIGHBOR_COUNT);
+                twoOpt.setFirstImprovement(firstImprovement);
+                return twoOpt;
+            case THREE_OPT:
+                return new ThreeOpt(graph, TSPSolver.NEIGHBOR_COUNT);
+            case LIN_KERNIGHAN:
+                return new LinKernighan(graph, TSPSolver.NEIGHBOR_COUNT);
+            case OR_OPT:
+                return new OrOpt(graph, TSPSolver.NEIGHBOR_COUNT);
+            default:
+                throw new IllegalArgumentException("Not a local search algorithm: " + algorithm);
+        }
+    }
+
+    /**
+     * Builds a tour with the selected construction heuristic.
+     */
+    private int[] buildStartTour() {
+        switch (_startTour) {
+            case GREEDY_EDGE:
+                return new GreedyEdgeTour(TSPSolver.NEIGHBOR_COUNT).buildTour(_graph);
+            case SPACE_FILLING_CURVE:
+                return new SpaceFillingCurveTour().buildTour(_graph);
+            case CHRISTOFIDES:
+                return new ChristofidesTour(TSPSolver.NEIGHBOR_COUNT).buildTour(_graph);
+            default:
+                return _graph.toTour(_graph.getGreedyPath());
+        }
+    }
+
+    /**
+     * Selects whether the pipelines polish their local optima with Or-opt moves.
+     */
+    public void setPolishing(boolean polishing) {
+        for (SearchPipeline pipeline : _pipelines) {
+            pipeline.setPolishing(polishing);
+        }
+    }
+
+    /**
+     * Returns the tour the first pipeline is currently working on (may be null).
+     */
+    public List<Node> getWorkingTour() {
+        return _pipelines.get(0).getWorkingPath();
+    }
+
+    /**
+     * Runs every pipeline for the specified time slice (in ns), in parallel if there is more than one.
+     */
+    public void update(long timeSlice) {
+        SearchPipeline first = _pipelines.get(0);
+        if (!first.isStarted()) {
+            // Start from best tour found OR a constructed tour (if no best tour exists or one was asked for)
+            // and perform local search from there
+            List<Node> bestPath = _graph.getBestPath();
+            first.start((!bestPath.isEmpty() && !_buildStartTour) ? _graph.toTour(bestPath) : buildStartTour());
+        }
+
+        _deadline = System.nanoTime() + timeSlice;
+        if (_executor == null) {
+            first.run(_deadline);
+            return;
+        }
+
+        try {
+            for (Future<Void> future : _executor.invokeAll(_tasks)) {
+                future.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException("Search pipeline failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void shutdown() {
+        if (_executor != null) {
+            _executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package tsp.app;
+
+import tsp.graph.Graph;
+import tsp.graph.TriangularArrays;
+
+/**
+ * Pheromone levels of every edge, kept in a flat lower-triangular array indexed by node ids.
+ *
+ * Rather than the pheromone level tau itself the matrix stores the choice info tau * eta^beta used by
+ * the ants, where eta^beta = (1 / distance)^beta is the heuristic value of the edge, so picking the
+ * next node only needs a single array read per candidate. The heuristic values are computed once per
+ * instance and kept alongside as floats (their precision is ample for a ratio of distances), so
+ * reading or setting a pheromone level is a single division or multiplication while the matrix
+ * takes 12 rather than 16 bytes per edge.
+ *
+ * Evaporation is applied lazily: the stored values are multiplied by a shared scale factor
+ * when read, so evaporating every trail only updates the scale. Because the scale is the same
+ * for every edge it cancels out when the ants compare choice info. The stored values are only
+ * rewritten (in a single pass over the array) when the scale gets small enough to risk losing
+ * precision.
+ */
+public class PheromoneMatrix {
+
+    private static final double MIN_SCALE = 1e-100;
+
+    private int _nodeCount;
+    private float[] _heuristic;
+    private double[] _choiceInfo;
+    private double _scale = 1.0;
+
+    public PheromoneMatrix(Graph graph, double initialWeight, double distanceWeight) {
+        _nodeCount = graph.getNodeCount();
+        _heuristic = new float[TriangularArrays.size(_nodeCount)];
+        _choiceInfo = new double[_heuristic.length];
+        for (int i = 1, offset = 0; i < _nodeCount; i++) {
+            for (int j = 0; j < i; j++, offset++) {
+                // Coincident nodes are treated as being one unit apart to keep the heuristic finite,
+                // and it is kept above zero so that the pheromone level can be recovered from it
+                double eta = 1.0d / Math.max(1, graph.distance(i, j));
+                float heuristic = (float) Math.max(Float.MIN_NORMAL, Math.pow(eta, distanceWeight));
+                _heuristic[offset] = heuristic;
+                _choiceInfo[offset] = initialWeight * heuristic;
+            }
+        }
+    }
+
+    public int getNodeCount() {
+        return _nodeCount;
+    }
+
+    /**
+     * Returns the pheromone level on the edge connecting the nodes with the specified ids.
+     */
+    public double get(int id1, int id2) {
+        int index = TriangularArrays.index(id1, id2);
+        return _choiceInfo[index] / _heuristic[index] * _scale;
+    }
+
+    /**
+     * Sets the pheromone level on the edge connecting the nodes with the specified ids.
+     */
+    public void set(int id1, int id2, double pheromoneWeight) {
+        int index = TriangularArrays.index(id1, id2);
+        _choiceInfo[index] = pheromoneWeight / _scale * _heuristic[index];
+    }
+
+    /**
+     * Returns the choice info tau * eta^beta of the edge connecting the nodes with the specified ids,
+     * up to the shared evaporation scale (only meaningful when compared to other edges).
+     */
+    public double getChoiceInfo(int id1, int id2) {
+        return _choiceInfo[TriangularArrays.index(id1, id2)];
+    }
+
+    /**
+     * Multiplies the pheromone level of every edge by the specified factor.
+     */
+    public void evaporate(double factor) {
+        _scale *= factor;
+        if (_scale < MIN_SCALE) {
+            for (int i = 0; i < _choiceInfo.length; i++) {
+                _choiceInfo[i] *= _scale;
+            }
+            _scale = 1.0;
+        }
+    }
+}
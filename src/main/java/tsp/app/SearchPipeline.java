@@ -0,0 +1,202 @@
+package tsp.app;
+
+import tsp.graph.Graph;
+import tsp.graph.KdTree;
+import tsp.graph.Node;
+import tsp.solver.IteratedLocalSearch;
+import tsp.solver.LocalSearch;
+import tsp.solver.OrOpt;
+import tsp.solver.Tour;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A single construction + local search pipeline: builds a start tour, improves it with a local
+ * search and escapes each local optimum either with double-bridge kicks (iterated local search)
+ * or by restarting from a new random tour. Every pipeline owns its tour, local search engines and
+ * random number generator, so several pipelines can run on different threads against the same
+ * graph; improvements are published to the graph's best path.
+ */
+class SearchPipeline {
+
+    private Graph _graph;
+    private LocalSearch _localSearch;
+    private OrOpt _polisher;
+    private volatile boolean _polishing = false;
+    private double _randomEdgeChance;
+    private Random _random;
+
+    private Tour _tour = null;
+    private IteratedLocalSearch _iteratedSearch = null;
+    private volatile List<Node> _workingPath = null;
+
+    /**
+     * Creates a pipeline running the local search (escaping local optima with kicks if iterated
+     * is set, or restarting from tours built with the specified random edge chance otherwise).
+     */
+    SearchPipeline(Graph graph, LocalSearch localSearch, double randomEdgeChance, boolean iterated, long seed) {
+        _graph = graph;
+        _localSearch = localSearch;
+        _polisher = new OrOpt(graph, TSPSolver.NEIGHBOR_COUNT);
+        _randomEdgeChance = randomEdgeChance;
+        _random = new Random(seed);
+        if (iterated) {
+            _iteratedSearch = new IteratedLocalSearch(graph, localSearch, _random);
+        }
+    }
+
+    /**
+     * Selects whether local optima are polished with Or-opt moves (ignored if the local search is Or-opt itself).
+     */
+    void setPolishing(boolean polishing) {
+        _polishing = polishing && !(_localSearch instanceof OrOpt);
+    }
+
+    /**
+     * Returns true once the pipeline has a working tour.
+     */
+    boolean isStarted() {
+        return _tour != null;
+    }
+
+    /**
+     * Starts working on the specified tour, publishing it if it is shorter than the best tour so far
+     * (so a start tour that is already a local optimum is not lost).
+     */
+    void start(int[] tour) {
+        _tour = new Tour(tour);
+        if (_iteratedSearch != null) {
+            _iteratedSearch.reset(_tour);
+        }
+        _workingPath = _graph.toPath(tour);
+        _graph.setBestPath(_workingPath);
+    }
+
+    /**
+     * Returns the tour most recently published (or started from) by this pipeline, or null.
+     */
+    List<Node> getWorkingPath() {
+        return _workingPath;
+    }
+
+    /**
+     * Runs the pipeline until System.nanoTime() reaches the deadline (building a random start
+     * tour first if it has not been started), publishing improvements to the graph.
+     */
+    void run(long deadline) {
+        if (_tour == null) {
+            start(createRandomTour(_randomEdgeChance));
+        }
+
+        if (_iteratedSearch != null) {
+            // Kick the tour out of each local optimum and re-optimise around the kick until the time runs out
+            _iteratedSearch.setPolisher(_polishing ? _polisher : null);
+            if (_iteratedSearch.run(deadline)) {
+                publish();
+            }
+            return;
+        }
+
+        // Apply improving moves until a local optimum is reached or the time runs out, then publish the result once
+        long gain = 0;
+        long moveGain;
+        do {
+            moveGain = _localSearch.improve(_tour);
+            gain += moveGain;
+        } while (moveGain > 0 && System.nanoTime() < deadline);
+
+        if (moveGain == 0 && _polishing) {
+            // Polish the local optimum with Or-opt moves; if that changes the tour, carry on searching
+            // from a fresh copy so the local search starts again with every node active
+            long polishGain = _polisher.polish(_tour);
+            if (polishGain > 0) {
+                gain += polishGain;
+                _tour = new Tour(_tour.toArray());
+            }
+        }
+
+        if (gain > 0) {
+            // new best tour was located -- local maximum not yet reached
+            publish();
+        }
+        else {
+            // Local maximum found, so restart from random tour
+            start(createRandomTour(_randomEdgeChance));
+        }
+    }
+
+    private void publish() {
+        _workingPath = _graph.toPath(_tour.toArray());
+        _graph.setBestPath(_workingPath);
+    }
+
+    /**
+     * Creates a new random tour for hill-climbing by using nearest-neighbor algorithm
+     * but every so often picking an edge completely at random 
+     */
+    private int[] createRandomTour(double randomEdgeChance) {
+        int nodeCount = _graph.getNodeCount();
+        int[] randomTour = new int[nodeCount];
+        if (nodeCount == 0) {
+            return randomTour;
+        }
+
+        // Successor of each node along the best tour found so far (-1 for the last node or if there is no best tour)
+        int[] bestTour = _graph.toTour(_graph.getBestPath());
+        int[] nextInBestTour = new int[nodeCount];
+        Arrays.fill(nextInBestTour, -1);
+        for (int i = 0; i < bestTour.length - 1; i++) {
+            nextInBestTour[bestTour[i]] = bestTour[i + 1];
+        }
+
+        // Remaining nodes in remainingNodes[0..remainingCount), with the position of each node in the array
+        int[] remainingNodes = new int[nodeCount];
+        int[] remainingPositions = new int[nodeCount];
+        for (int id = 0; id < nodeCount; id++) {
+            remainingNodes[id] = id;
+            remainingPositions[id] = id;
+        }
+        int remainingCount = nodeCount;
+
+        // Spatial index used to look up the nearest remaining node (visited nodes are removed from it)
+        KdTree spatialIndex = _graph.createSpatialIndex();
+
+        for (int i = 0; i < nodeCount; i++) {
+            int nextNode;
+            if (i == 0 || _random.nextDouble() < randomEdgeChance) {
+                // Pick a remaining city entirely at random
+                nextNode = remainingNodes[_random.nextInt(remainingCount)];
+            }
+            else {
+                // Using the best tour found so far, we will travel to the next city from the current city in that tour
+                // If the next city IS NOT in the remaining nodes, then simply revert to nearest (remaining) neighbor
+                int currentNode = randomTour[i - 1];
+                int nextInBest = nextInBestTour[currentNode];
+                if (nextInBest != -1 && remainingPositions[nextInBest] < remainingCount) {
+                    // Travel along best path already found rather than nearest neighbor
+                    nextNode = nextInBest;
+                }
+                else {
+                    // Pick nearest node as the next node in the best path from current node has already been visited
+                    Node node = _graph.getNode(currentNode);
+                    nextNode = spatialIndex.nearest(node.getX(), node.getY());
+                }
+            }
+
+            randomTour[i] = nextNode;
+            spatialIndex.remove(nextNode);
+
+            // Swap the node with the last remaining one and shrink the remaining range
+            int position = remainingPositions[nextNode];
+            int last = remainingNodes[--remainingCount];
+            remainingNodes[position] = last;
+            remainingPositions[last] = position;
+            remainingNodes[remainingCount] = nextNode;
+            remainingPositions[nextNode] = remainingCount;
+        }
+
+        return randomTour;
+    }
+}
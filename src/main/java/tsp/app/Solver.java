@@ -0,0 +1,274 @@
+package tsp.app;
+
+import tsp.graph.BestTour;
+import tsp.graph.Graph;
+import tsp.graph.NeighborLists;
+import tsp.graph.Node;
+import tsp.solver.OrOpt;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the selected algorithm against a graph one step at a time. The solver has no GUI
+ * dependencies; it is driven by the Swing event loop when running interactively and by
+ * TSPBatchSolver when running headless.
+ */
+public class Solver {
+
+    // Maximum time (in ns) a local search step keeps applying moves before returning
+    private static final long STEP_TIME_SLICE = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private Graph _graph;
+    private Colony _colony = null;
+    private int _antStepsPerUpdate = 5;
+    private Random _random = new Random();
+    private Algorithm _runningAlgorithm = Algorithm.NONE;
+    private long _calculatePathStartTime = 0;
+    private long _startNanoTime = 0;
+    private long _iteration = 0;
+
+    private List<ImprovementListener> _listeners = new CopyOnWriteArrayList<ImprovementListener>();
+    private ExecutorService _eventDispatcher = null;
+
+    private MultiStartSearch _search = null;
+    private int _parallelStarts = 1;
+    private boolean _firstImprovement = true;
+    private boolean _iteratedLocalSearch = true;
+    private StartTour _startTour = StartTour.NEAREST_NEIGHBOR;
+    private boolean _startTourChanged = false;
+    private OrOpt _orOpt;
+    private boolean _orOptPolishing = false;
+
+    public Solver(Graph graph) {
+        _graph = graph;
+        _orOpt = new OrOpt(graph, TSPSolver.NEIGHBOR_COUNT);
+    }
+
+    /**
+     * Starts running the specified algorithm (from the best tour found so far, if any).
+     */
+    public void start(Algorithm algorithm) {
+        _runningAlgorithm = algorithm;
+        if (_colony != null) {
+            _colony.shutdown();
+            _colony = null;
+        }
+        if (_search != null) {
+            _search.shutdown();
+            _search = null;
+        }
+        if (algorithm.equals(Algorithm.ANTS)) {
+            _colony = new Colony(_graph, TSPSolver.NUM_AGENTS, _random.nextLong());
+            _colony.setPolisher(_orOptPolishing ? _orOpt : null);
+        }
+        else if (!algorithm.equals(Algorithm.NONE)) {
+            _search = new MultiStartSearch(_graph, algorithm, _parallelStarts, _random.nextLong(),
+                    _firstImprovement, _iteratedLocalSearch, _startTour, _startTourChanged);
+            _startTourChanged = false;
+            _search.setPolishing(_orOptPolishing);
+        }
+        _calculatePathStartTime = (algorithm.equals(Algorithm.NONE)) ? 0 : System.currentTimeMillis();
+        _startNanoTime = System.nanoTime();
+        _iteration = 0;
+    }
+
+    /**
+     * Stops the running algorithm.
+     */
+    public void stop() {
+        start(Algorithm.NONE);
+    }
+
+    /**
+     * Sets how many nodes each ant advances per step (0 lets every ant complete its tour each step).
+     * Interactive use keeps this small so a step never blocks the event queue for long.
+     */
+    public void setAntStepsPerUpdate(int antStepsPerUpdate) {
+        _antStepsPerUpdate = antStepsPerUpdate;
+    }
+
+    /**
+     * Sets how many independent construction + local search pipelines run in parallel for the
+     * local search algorithms. Takes effect when an algorithm is next started.
+     */
+    public void setParallelStarts(int parallelStarts) {
+        _parallelStarts = Math.max(1, parallelStarts);
+    }
+
+    /**
+     * Selects whether 2-opt and hill climbing apply the first improving move found (the default)
+     * or scan the whole neighbourhood for the best one. Takes effect when an algorithm is next started.
+     */
+    public void setFirstImprovement(boolean firstImprovement) {
+        _firstImprovement = firstImprovement;
+    }
+
+    /**
+     * Selects whether tours are polished with Or-opt moves: the best ant tour of each colony round,
+     * and the working tour of the other local searches whenever they reach a local optimum.
+     */
+    public void setOrOptPolishing(boolean orOptPolishing) {
+        _orOptPolishing = orOptPolishing;
+        if (_colony != null) {
+            _colony.setPolisher(orOptPolishing ? _orOpt : null);
+        }
+        if (_search != null) {
+            _search.setPolishing(orOptPolishing);
+        }
+    }
+
+    /**
+     * Selects whether the local searches escape local optima with double-bridge kicks (the default)
+     * or by restarting from a new random tour. Takes effect when an algorithm is next started.
+     */
+    public void setIteratedLocalSearch(boolean iteratedLocalSearch) {
+        _iteratedLocalSearch = iteratedLocalSearch;
+    }
+
+    /**
+     * Selects the heuristic used to build the first tour of the local searches when there is no best
+     * tour to start from (nearest neighbour by default). Takes effect when an algorithm is next started;
+     * after a change of heuristic, that search starts from a newly built tour even if a best tour exists.
+     */
+    public void setStartTour(StartTour startTour) {
+        if (startTour != _startTour) {
+            _startTour = startTour;
+            _startTourChanged = true;
+        }
+    }
+
+    /**
+     * Registers a listener to be told about every new best tour found from now on.
+     */
+    public void addImprovementListener(ImprovementListener listener) {
+        if (_eventDispatcher == null) {
+            _eventDispatcher = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "improvement-events");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        _listeners.add(listener);
+    }
+
+    public void removeImprovementListener(ImprovementListener listener) {
+        _listeners.remove(listener);
+    }
+
+    public Algorithm getAlgorithm() {
+        return _runningAlgorithm;
+    }
+
+    /**
+     * Returns the time (in ms since the epoch) the running algorithm was started, or 0 if none is running.
+     */
+    public long getStartTime() {
+        return _calculatePathStartTime;
+    }
+
+    /**
+     * Returns the pheromone trails of the running ant colony (null if ants are not running).
+     */
+    public PheromoneMatrix getPheromones() {
+        return (_colony != null) ? _colony.getPheromones() : null;
+    }
+
+    /**
+     * Returns the candidate lists of the running ant colony (null if ants are not running).
+     */
+    public NeighborLists getCandidates() {
+        return (_colony != null) ? _colony.getCandidates() : null;
+    }
+
+    /**
+     * Returns the tour the running algorithm is currently working on (may be null).
+     */
+    public List<Node> getWorkingTour() {
+        return (_search != null) ? _search.getWorkingTour() : null;
+    }
+
+    /**
+     * Performs a single update step of the running algorithm.
+     */
+    public void step() {
+        BestTour previousBest = _graph.getBestTour();
+        _iteration++;
+
+        if (_runningAlgorithm.equals(Algorithm.ANTS)) {
+            _colony.update(_antStepsPerUpdate);
+        }
+        else if (_runningAlgorithm.equals(Algorithm.HILL_CLIMBING)) {
+            updateHillClimbing();
+        }
+        else if (_runningAlgorithm.equals(Algorithm.TWO_OPT)) {
+            updateTwoOpt();
+        }
+        else if (_runningAlgorithm.equals(Algorithm.THREE_OPT)) {
+            updateThreeOpt();
+        }
+        else if (_runningAlgorithm.equals(Algorithm.LIN_KERNIGHAN)) {
+            updateLinKernighan();
+        }
+        else if (_runningAlgorithm.equals(Algorithm.OR_OPT)) {
+            updateOrOpt();
+        }
+
+        // Did we find a better path this update cycle? If so, tell the listeners without waiting on them
+        BestTour bestTour = _graph.getBestTour();
+        if (bestTour != previousBest && !bestTour.isEmpty() && !_listeners.isEmpty()) {
+            ImprovementEvent event = new ImprovementEvent(bestTour.getLength(),
+                    Math.max(0, bestTour.getNanoTime() - _startNanoTime), _runningAlgorithm, _iteration);
+            _eventDispatcher.execute(() -> {
+                for (ImprovementListener listener : _listeners) {
+                    listener.improvementFound(event);
+                }
+            });
+        }
+    }
+
+    private void updateHillClimbing() {
+        // Step function will find two nodes that, when swapped, grant a better tour and swap them
+        // Each swap is scored from the (up to) four edges it changes and applied to the tour in place
+        updateLocalSearch();
+    }
+
+    private void updateTwoOpt() {
+        // Step function will perform the best 2-opt move available
+        // A 2-opt move means picking a pair of non-adjacent edges in the graph,
+        // eliminating these edges, and reconnecting the graph -- by eliminating two non adjacent edges,
+        // only a SINGLE method (that does not recreate the original tour) exists to reconnect these nodes
+        // Each move is scored from the four edges involved and only the best one is applied to the tour
+        updateLocalSearch();
+    }
+
+    private void updateThreeOpt() {
+        // Step function will perform the best 3-opt move available
+        // A 3-opt move removes three edges and reconnects the three resulting paths in one of seven ways
+        // Each move is scored from the six edges involved and applied as a series of segment reversals
+        updateLocalSearch();
+    }
+
+    private void updateLinKernighan() {
+        // Step function will apply the next improving variable-depth move found from the active nodes
+        // A move is a chain of 2-opt moves, each breaking the edge added to close the tour by the previous one
+        updateLocalSearch();
+    }
+
+    private void updateOrOpt() {
+        // Step function will move a chain of up to three cities to a better place in the tour
+        // Each move is scored from the three edges it changes and applied as a 3-opt segment insertion
+        updateLocalSearch();
+    }
+
+    /**
+     * Performs a single improvement step (lasting STEP_TIME_SLICE) of the running local search pipelines.
+     */
+    private void updateLocalSearch() {
+        _search.update(STEP_TIME_SLICE);
+    }
+}
@@ -0,0 +1,81 @@
+package tsp.app;
+
+import tsp.graph.BestTour;
+import tsp.graph.NeighborLists;
+import tsp.graph.Node;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of the graph and solver state taken by the solver worker between steps,
+ * so the GUI can paint it at its own pace without touching the graph being solved.
+ */
+class SolverSnapshot {
+
+    static final SolverSnapshot EMPTY = new SolverSnapshot(Collections.<Node>emptyList(),
+            Collections.<Node>emptyList(), 0, BestTour.EMPTY, null, null, null, Algorithm.NONE);
+
+    private final List<Node> _nodes;
+    private final List<Node> _greedyPath;
+    private final long _greedyPathLength;
+    private final BestTour _bestTour;
+    private final List<Node> _workingTour;
+    private final PheromoneMatrix _pheromones;
+    private final NeighborLists _candidates;
+    private final Algorithm _algorithm;
+
+    SolverSnapshot(List<Node> nodes, List<Node> greedyPath, long greedyPathLength, BestTour bestTour,
+            List<Node> workingTour, PheromoneMatrix pheromones, NeighborLists candidates, Algorithm algorithm) {
+        _nodes = nodes;
+        _greedyPath = greedyPath;
+        _greedyPathLength = greedyPathLength;
+        _bestTour = bestTour;
+        _workingTour = workingTour;
+        _pheromones = pheromones;
+        _candidates = candidates;
+        _algorithm = algorithm;
+    }
+
+    List<Node> getNodes() {
+        return _nodes;
+    }
+
+    List<Node> getGreedyPath() {
+        return _greedyPath;
+    }
+
+    long getGreedyPathLength() {
+        return _greedyPathLength;
+    }
+
+    BestTour getBestTour() {
+        return _bestTour;
+    }
+
+    /**
+     * Returns the tour the running local search is working on (null if there is none).
+     */
+    List<Node> getWorkingTour() {
+        return _workingTour;
+    }
+
+    /**
+     * Returns the pheromone trails of the running colony (null if ants are not running). The trails
+     * keep changing while the colony runs, so they are only suitable for display.
+     */
+    PheromoneMatrix getPheromones() {
+        return _pheromones;
+    }
+
+    /**
+     * Returns the candidate lists of the running colony (null if ants are not running).
+     */
+    NeighborLists getCandidates() {
+        return _candidates;
+    }
+
+    Algorithm getAlgorithm() {
+        return _algorithm;
+    }
+}
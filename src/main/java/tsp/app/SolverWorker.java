@@ -0,0 +1,134 @@
+package tsp.app;
+
+import tsp.graph.Graph;
+import tsp.graph.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a solver on its own thread, stepping it for as long as an algorithm is running. Anything
+ * that touches the solver or the graph is submitted as a command and run by the worker between
+ * steps, and the GUI reads the state through snapshots the worker publishes on request.
+ */
+class SolverWorker {
+
+    private Graph _graph;
+    private Solver _solver;
+    private BlockingQueue<Runnable> _commands = new LinkedBlockingQueue<Runnable>();
+    private AtomicBoolean _snapshotRequested = new AtomicBoolean(false);
+    private volatile SolverSnapshot _snapshot = SolverSnapshot.EMPTY;
+    private volatile String _failure = null;
+
+    // Copies of the nodes and greedy path, only touched by the worker and rebuilt after graph changes
+    private List<Node> _nodes = null;
+    private List<Node> _greedyPath = null;
+
+    SolverWorker(Graph graph, Solver solver) {
+        _graph = graph;
+        _solver = solver;
+
+        Thread thread = new Thread(this::run, "solver-worker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a command to run on the worker thread before the next solver step.
+     */
+    void submit(Runnable command) {
+        _commands.add(command);
+    }
+
+    /**
+     * Queues a command that adds or removes nodes of the graph.
+     */
+    void submitGraphChange(Runnable command) {
+        submit(() -> {
+            try {
+                command.run();
+            }
+            finally {
+                _nodes = null;
+                _greedyPath = null;
+            }
+        });
+    }
+
+    /**
+     * Asks the worker to publish a new snapshot after its current step (if one is not already pending).
+     */
+    void requestSnapshot() {
+        if (_snapshotRequested.compareAndSet(false, true)) {
+            submit(this::publishSnapshot);
+        }
+    }
+
+    /**
+     * Returns the most recently published snapshot.
+     */
+    SolverSnapshot getSnapshot() {
+        return _snapshot;
+    }
+
+    /**
+     * Returns a description of the failure that last stopped the solver, or null if there was none
+     * since clearFailure() was called.
+     */
+    String getFailure() {
+        return _failure;
+    }
+
+    void clearFailure() {
+        _failure = null;
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                // Sleep until there is something to do while no algorithm is running
+                Runnable command = (_solver.getAlgorithm().equals(Algorithm.NONE)) ? _commands.take() : _commands.poll();
+                while (command != null) {
+                    command.run();
+                    command = _commands.poll();
+                }
+
+                if (!_solver.getAlgorithm().equals(Algorithm.NONE)) {
+                    _solver.step();
+                }
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+            catch (RuntimeException | OutOfMemoryError e) {
+                // Keep the worker alive so later commands still run; running out of memory
+                // (e.g. ants on a huge graph) only stops the algorithm that needed it
+                e.printStackTrace();
+                _failure = e.getClass().getSimpleName() + ((e.getMessage() != null) ? ": " + e.getMessage() : "");
+                _solver.stop();
+            }
+        }
+    }
+
+    private void publishSnapshot() {
+        _snapshotRequested.set(false);
+
+        if (_nodes == null) {
+            _nodes = Collections.unmodifiableList(new ArrayList<Node>(_graph.getNodes()));
+
+            // Show new nodes straight away; the greedy path (slow to build for huge graphs) follows in the next snapshot
+            _snapshot = new SolverSnapshot(_nodes, Collections.<Node>emptyList(), 0, _graph.getBestTour(),
+                    _solver.getWorkingTour(), _solver.getPheromones(), _solver.getCandidates(), _solver.getAlgorithm());
+            return;
+        }
+        if (_greedyPath == null) {
+            _greedyPath = Collections.unmodifiableList(_graph.getGreedyPath());
+        }
+        _snapshot = new SolverSnapshot(_nodes, _greedyPath, _graph.getGreedyPathLength(), _graph.getBestTour(),
+                _solver.getWorkingTour(), _solver.getPheromones(), _solver.getCandidates(), _solver.getAlgorithm());
+    }
+}
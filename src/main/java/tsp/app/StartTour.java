@@ -0,0 +1,11 @@
+package tsp.app;
+
+/**
+ * Construction heuristics the local searches can build their first tour with.
+ */
+public enum StartTour {
+    NEAREST_NEIGHBOR,
+    GREEDY_EDGE,
+    SPACE_FILLING_CURVE,
+    CHRISTOFIDES;
+}
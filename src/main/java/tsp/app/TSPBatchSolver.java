@@ -0,0 +1,296 @@
+package tsp.app;
+
+import tsp.graph.BestTour;
+import tsp.graph.DistanceMetric;
+import tsp.graph.Graph;
+import tsp.io.TspLibReader;
+import tsp.io.TspLibWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Headless command-line entry point. Loads (or generates) an instance, runs the chosen algorithm
+ * at full speed until its time or iteration budget is exhausted and prints the best tour found.
+ *
+ * Usage: TSPBatchSolver [options] [instance file]
+ *   --algorithm <name>    algorithm to run (ANTS, HILL_CLIMBING, TWO_OPT, THREE_OPT, LIN_KERNIGHAN, OR_OPT)
+ *   --time <seconds>      time budget (default 10 seconds if no budget is given)
+ *   --iterations <count>  maximum number of solver steps
+ *   --improvement <mode>  FIRST (default) or BEST improvement for 2-opt and hill climbing
+ *   --polish <on|off>     polish tours with Or-opt moves (default off)
+ *   --ils <on|off>        escape local optima with double-bridge kicks instead of random restarts (default on)
+ *   --threads <count>     number of parallel local search pipelines (default one per core)
+ *   --greedy-starts <count> start nodes tried by the nearest-neighbour greedy tour (default 16)
+ *   --start <name>        start tour construction (NEAREST_NEIGHBOR, GREEDY_EDGE, SPACE_FILLING_CURVE, CHRISTOFIDES)
+ *   --generate <count>    generate random cities instead of reading an instance file
+ *   --seed <value>        random seed used when generating cities
+ *   --output <file>       write the best tour to a TSPLIB .tour file
+ *
+ * Instance files ending in .tsp are read as TSPLIB files. Any other instance file holds one city
+ * per line as a pair of whitespace separated integer coordinates; blank lines and lines starting
+ * with '#' are ignored. Cities are numbered from 0 in the order they appear, and none are dropped
+ * (even duplicates), so the printed tour refers to the cities of the file.
+ */
+public class TSPBatchSolver {
+
+    private static final int GENERATE_EXTENT = 10000;
+
+    private Algorithm _algorithm = Algorithm.LIN_KERNIGHAN;
+    private double _timeLimit = 0;
+    private long _iterationLimit = 0;
+    private boolean _firstImprovement = true;
+    private boolean _orOptPolishing = false;
+    private boolean _iteratedLocalSearch = true;
+    private int _threads = Runtime.getRuntime().availableProcessors();
+    private int _greedyStarts = 0;
+    private StartTour _startTour = StartTour.NEAREST_NEIGHBOR;
+    private int _generateCount = 0;
+    private long _seed = 0;
+    private String _instanceFile = null;
+    private String _outputFile = null;
+
+    public static void main(String[] args) {
+        TSPBatchSolver batchSolver = new TSPBatchSolver();
+        try {
+            batchSolver.parseArguments(args);
+            batchSolver.run();
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+        catch (IOException e) {
+            System.err.println("I/O error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: TSPBatchSolver [options] [instance file]");
+        System.err.println("  --algorithm <name>    ANTS, HILL_CLIMBING, TWO_OPT, THREE_OPT, LIN_KERNIGHAN or OR_OPT (default LIN_KERNIGHAN)");
+        System.err.println("  --time <seconds>      time budget (default 10 seconds if no budget is given)");
+        System.err.println("  --iterations <count>  maximum number of solver steps");
+        System.err.println("  --improvement <mode>  FIRST (default) or BEST improvement for 2-opt and hill climbing");
+        System.err.println("  --polish <on|off>     polish tours with Or-opt moves (default off)");
+        System.err.println("  --ils <on|off>        escape local optima with double-bridge kicks instead of random restarts (default on)");
+        System.err.println("  --threads <count>     number of parallel local search pipelines (default one per core)");
+        System.err.println("  --greedy-starts <count> start nodes tried by the nearest-neighbour greedy tour (default 16)");
+        System.err.println("  --start <name>        NEAREST_NEIGHBOR, GREEDY_EDGE, SPACE_FILLING_CURVE or CHRISTOFIDES start tour (default NEAREST_NEIGHBOR)");
+        System.err.println("  --generate <count>    generate random cities instead of reading an instance file");
+        System.err.println("  --seed <value>        random seed used when generating cities");
+        System.err.println("  --output <file>       write the best tour to a TSPLIB .tour file");
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                _instanceFile = arg;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            try {
+                switch (arg) {
+                    case "--algorithm":
+                        _algorithm = Algorithm.valueOf(value.toUpperCase(Locale.ROOT).replace('-', '_'));
+                        break;
+                    case "--time":
+                        _timeLimit = Double.parseDouble(value);
+                        break;
+                    case "--iterations":
+                        _iterationLimit = Long.parseLong(value);
+                        break;
+                    case "--improvement":
+                        _firstImprovement = parseImprovement(value);
+                        break;
+                    case "--polish":
+                        _orOptPolishing = parseSwitch(arg, value);
+                        break;
+                    case "--ils":
+                        _iteratedLocalSearch = parseSwitch(arg, value);
+                        break;
+                    case "--threads":
+                        _threads = Integer.parseInt(value);
+                        break;
+                    case "--greedy-starts":
+                        _greedyStarts = Integer.parseInt(value);
+                        if (_greedyStarts < 1) {
+                            throw new IllegalArgumentException("--greedy-starts must be at least 1");
+                        }
+                        break;
+                    case "--start":
+                        _startTour = StartTour.valueOf(value.toUpperCase(Locale.ROOT).replace('-', '_'));
+                        break;
+                    case "--generate":
+                        _generateCount = Integer.parseInt(value);
+                        break;
+                    case "--seed":
+                        _seed = Long.parseLong(value);
+                        break;
+                    case "--output":
+                        _outputFile = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + arg + ": " + value);
+            }
+        }
+
+        if (_algorithm.equals(Algorithm.NONE)) {
+            throw new IllegalArgumentException("An algorithm must be selected");
+        }
+        if ((_instanceFile == null) == (_generateCount <= 0)) {
+            throw new IllegalArgumentException("Specify either an instance file or --generate");
+        }
+        if (_threads < 1) {
+            throw new IllegalArgumentException("--threads must be at least 1");
+        }
+        if (_timeLimit <= 0 && _iterationLimit <= 0) {
+            _timeLimit = 10;
+        }
+    }
+
+    private static boolean parseImprovement(String value) {
+        switch (value.toUpperCase(Locale.ROOT)) {
+            case "FIRST":
+                return true;
+            case "BEST":
+                return false;
+            default:
+                throw new IllegalArgumentException("Invalid value for --improvement: " + value);
+        }
+    }
+
+    private static boolean parseSwitch(String arg, String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "on":
+                return true;
+            case "off":
+                return false;
+            default:
+                throw new IllegalArgumentException("Invalid value for " + arg + ": " + value);
+        }
+    }
+
+    private void run() throws IOException {
+        Graph graph = new Graph();
+        if (_greedyStarts > 0) {
+            graph.setGreedyStartCount(_greedyStarts);
+        }
+        String name = "random" + _generateCount;
+        long loadStartTime = System.nanoTime();
+        if (_instanceFile == null) {
+            generateInstance(graph);
+        }
+        else if (_instanceFile.toLowerCase(Locale.ROOT).endsWith(".tsp")) {
+            name = TspLibReader.read(Paths.get(_instanceFile), graph);
+        }
+        else {
+            name = Paths.get(_instanceFile).getFileName().toString();
+            loadInstance(graph, _instanceFile);
+        }
+        long loadTime = (System.nanoTime() - loadStartTime) / 1000000;
+        System.out.println("Nodes: " + graph.getNodeCount() + " (" + graph.getMetric() + ", loaded in " + loadTime + "ms)");
+
+        // No event queue to keep responsive, so let every ant complete its tour each step
+        Solver solver = new Solver(graph);
+        solver.setAntStepsPerUpdate(0);
+        solver.setFirstImprovement(_firstImprovement);
+        solver.setOrOptPolishing(_orOptPolishing);
+        solver.setIteratedLocalSearch(_iteratedLocalSearch);
+        solver.setParallelStarts(_threads);
+        solver.setStartTour(_startTour);
+        solver.start(_algorithm);
+        long solverStartTime = solver.getStartTime();
+
+        long startTime = System.nanoTime();
+        long deadline = startTime + (long) (_timeLimit * 1e9);
+        long iterations = 0;
+        while ((_iterationLimit <= 0 || iterations < _iterationLimit) && (_timeLimit <= 0 || System.nanoTime() < deadline)) {
+            solver.step();
+            iterations++;
+        }
+        long elapsedTime = (System.nanoTime() - startTime) / 1000000;
+        solver.stop();
+
+        System.out.println("Algorithm: " + _algorithm + " (start tour " + _startTour + ")");
+        System.out.println("Iterations: " + iterations + " in " + elapsedTime + "ms");
+        System.out.println("Greedy path length: " + graph.getGreedyPathLength());
+        BestTour best = graph.getBestTour();
+        System.out.println("Best path length: " + best.getLength());
+        System.out.println("Time to find solution: " + Math.max(0, best.getTimestamp() - solverStartTime) + "ms");
+
+        int[] bestTour = graph.toTour(best.getPath());
+        if (_outputFile != null) {
+            TspLibWriter.writeTour(Paths.get(_outputFile), name, bestTour, best.getLength());
+            System.out.println("Tour written to " + _outputFile);
+        }
+        else {
+            StringBuilder tour = new StringBuilder("Tour:");
+            for (int id : bestTour) {
+                tour.append(' ').append(id);
+            }
+            System.out.println(tour);
+        }
+    }
+
+    private void loadInstance(Graph graph, String fileName) throws IOException {
+        double[] xCoords = new double[1024];
+        double[] yCoords = new double[1024];
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.US_ASCII)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                String[] fields = line.split("\\s+");
+                if (fields.length != 2) {
+                    throw new IOException("Expected two coordinates on line " + lineNumber);
+                }
+                if (count == xCoords.length) {
+                    xCoords = Arrays.copyOf(xCoords, count * 2);
+                    yCoords = Arrays.copyOf(yCoords, count * 2);
+                }
+                try {
+                    xCoords[count] = Integer.parseInt(fields[0]);
+                    yCoords[count] = Integer.parseInt(fields[1]);
+                    count++;
+                }
+                catch (NumberFormatException e) {
+                    throw new IOException("Invalid coordinates on line " + lineNumber);
+                }
+            }
+        }
+
+        // Load every city (even duplicates) so the node ids in the printed tour follow the order of the file
+        graph.load(xCoords, yCoords, count, DistanceMetric.EUC_2D);
+    }
+
+    private void generateInstance(Graph graph) {
+        Random rand = (_seed != 0) ? new Random(_seed) : new Random();
+        double[] xCoords = new double[_generateCount];
+        double[] yCoords = new double[_generateCount];
+        for (int i = 0; i < _generateCount; i++) {
+            xCoords[i] = rand.nextInt(GENERATE_EXTENT);
+            yCoords[i] = rand.nextInt(GENERATE_EXTENT);
+        }
+        graph.addNodes(xCoords, yCoords, _generateCount);
+    }
+}
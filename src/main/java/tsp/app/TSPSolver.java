@@ -1,19 +1,20 @@
 package tsp.app;
 
-import tsp.graph.Edge;
+import tsp.graph.BestTour;
 import tsp.graph.Graph;
+import tsp.graph.NeighborLists;
 import tsp.graph.Node;
+import tsp.gui.HeatmapRaster;
+import tsp.gui.TSPDrawPane;
+import tsp.gui.TSPDrawPane.Layer;
 import tsp.gui.TSPWindow;
 
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.*;
 
@@ -28,6 +29,8 @@ public class TSPSolver {
     public static double DECAY_VALUE = 0.10; // pheromone decay paramater
     public static double INIT_WEIGHT = 1.00; // initial edge pheromone value
     public static double INCREASE_WEIGHT = 1.00; // visited edge pheromone increase value
+    public static int NEIGHBOR_COUNT = 10; // number of nearest neighbours considered as candidates by the ants and local search
+    public static int FRAMES_PER_SECOND = 30; // rate at which the display samples the solver state
 
     /**
      * @param args
@@ -39,9 +42,9 @@ public class TSPSolver {
         TSPWindow window = new TSPWindow(1024, 768, "Traveling Salesman", graph);
         window.setLocation(75, 75);
 
-        // MainEventLoop will handle updating the display and 
-        // handling any agents that are touring the graph
-        Timer timer = new Timer(0, new MainEventLoop(window, graph));
+        // MainEventLoop will handle updating the display and passing commands
+        // to the worker thread running the algorithms
+        Timer timer = new Timer(1000 / FRAMES_PER_SECOND, new MainEventLoop(window, graph));
         timer.start();
     }
 }
@@ -50,489 +53,266 @@ class MainEventLoop extends JPanel implements ActionListener {
 
     private static final long serialVersionUID = 1470315229081539641L;
 
-    private enum Algorithm {
-        NONE,
-        ANTS,
-        HILL_CLIMBING,
-        TWO_OPT,
-        THREE_OPT;
-    }
+    // Pheromone trails shown per node, and the weakest trail worth showing
+    private static final int HEATMAP_EDGES = 3;
+    private static final double HEATMAP_MIN_WEIGHT = 0.25;
+
+    // Area (in square pixels at the default zoom) left per node when generating large numbers of nodes
+    private static final int GENERATE_AREA_PER_NODE = 400;
 
     private TSPWindow _window;
     private Graph _graph;
-    private List<Agent> _agents = new ArrayList<Agent>();
-    private Algorithm _runningAlgorithm = Algorithm.NONE;
-    private long _calculatePathStartTime = 0;
-
-    private List<Node> _currentWorkingTour = null;
+    private Solver _solver;
+    private SolverWorker _worker;
+    private boolean _orOptPolishing = false;
+    private StartTour _startTour = StartTour.NEAREST_NEIGHBOR;
+    private HeatmapRaster _heatmap = new HeatmapRaster();
 
     MainEventLoop(TSPWindow window, Graph graph) {
         _window = window;
         _graph = graph;
+        _solver = new Solver(graph);
+
+        // The solver runs on its own thread, so let every ant complete its tour each step
+        _solver.setAntStepsPerUpdate(0);
+        // Like the batch solver, run one local search pipeline per core
+        _solver.setParallelStarts(Runtime.getRuntime().availableProcessors());
+
+        // Improvements are pushed to the status bar and the console as they are found
+        _solver.addImprovementListener(event -> {
+            long elapsedTime = TimeUnit.NANOSECONDS.toMillis(event.getElapsedNanos());
+            SwingUtilities.invokeLater(() -> _window.showImprovement(event.getLength(), elapsedTime));
+        });
+        _solver.addImprovementListener(event -> System.out.println("Best: " + event.getLength()
+                + " after " + TimeUnit.NANOSECONDS.toMillis(event.getElapsedNanos()) + "ms ("
+                + event.getAlgorithm() + ", step " + event.getIteration() + ")"));
+
+        _worker = new SolverWorker(graph, _solver);
+        _window.setStartTourOptions(StartTour.values());
     }
 
-    private boolean _displayed = false;
-
     @Override
     public void actionPerformed(ActionEvent e) {
 
-        if (_calculatePathStartTime != 0) {
-            long elapsed = ((System.currentTimeMillis() - _calculatePathStartTime) / 1000);
-            if (elapsed != 0 && elapsed % 15 == 0) {
-                if (!_displayed) {
-                    System.out.println("TIME: " + elapsed + "s");
-                    _displayed = true;
-                }
-            }
-            else {
-                _displayed = false;
-            }
+        if (_window.generateButtonClicked()) {
+            generateNodes(_window.getGenerateNodeCount(), _window.getRandomSeedValue());
         }
 
-        if (_window.generateButtonClicked()) {
-            _runningAlgorithm = Algorithm.NONE;
-            _calculatePathStartTime = 0;
-            _agents.clear();
+        List<Point> newNodePositions = _window.takeNewNodePositions();
+        if (!newNodePositions.isEmpty()) {
+            _worker.submitGraphChange(() -> {
+                for (Point position : newNodePositions) {
+                    _graph.createNode(position.x, position.y);
+                }
+                SwingUtilities.invokeLater(_window::clearImprovement);
+            });
         }
 
         if (_window.releaseAntsButtonClicked()) {
-            _runningAlgorithm = Algorithm.ANTS;
-            initializeAgents(TSPSolver.NUM_AGENTS);
-            _calculatePathStartTime = System.currentTimeMillis();
+            startAlgorithm(Algorithm.ANTS);
         }
 
         if (_window.hillClimbingButtonClicked()) {
-            _runningAlgorithm = Algorithm.HILL_CLIMBING;
-            _currentWorkingTour = null;
-            _calculatePathStartTime = System.currentTimeMillis();
+            startAlgorithm(Algorithm.HILL_CLIMBING);
         }
 
         if (_window.twoOptButtonClicked()) {
-            _runningAlgorithm = Algorithm.TWO_OPT;
-            _currentWorkingTour = null;
-            _calculatePathStartTime = System.currentTimeMillis();
+            startAlgorithm(Algorithm.TWO_OPT);
         }
 
         if (_window.threeOptButtonClicked()) {
-            _runningAlgorithm = Algorithm.THREE_OPT;
-            _currentWorkingTour = null;
-            _calculatePathStartTime = System.currentTimeMillis();
+            startAlgorithm(Algorithm.THREE_OPT);
         }
 
-        long bestPathLength = _graph.getBestPathLength();
-
-        if (_runningAlgorithm.equals(Algorithm.ANTS)) {
-            updateAgents();
+        if (_window.linKernighanButtonClicked()) {
+            startAlgorithm(Algorithm.LIN_KERNIGHAN);
         }
-        else if (_runningAlgorithm.equals(Algorithm.HILL_CLIMBING)) {
-            updateHillClimbing();
-        }
-        else if (_runningAlgorithm.equals(Algorithm.TWO_OPT)) {
-            long startTime = System.nanoTime();
-            updateTwoOpt();
+
+        if (_window.orOptButtonClicked()) {
+            startAlgorithm(Algorithm.OR_OPT);
         }
-        else if (_runningAlgorithm.equals(Algorithm.THREE_OPT)) {
-            long startTime = System.nanoTime();
-            updateThreeOpt();
+
+        boolean orOptPolishing = _window.isPolishWithOrOptChecked();
+        if (orOptPolishing != _orOptPolishing) {
+            _orOptPolishing = orOptPolishing;
+            _worker.submit(() -> _solver.setOrOptPolishing(orOptPolishing));
         }
 
-        // Did we find a better path this update cycle? If so, update the elapsed time to solution found!
-        if (_graph.getBestPathLength() < bestPathLength) {
-            long elapsedTime = System.currentTimeMillis() - _calculatePathStartTime;
-            _graph.setElapsedTime(elapsedTime);
+        StartTour startTour = (StartTour) _window.getSelectedStartTour();
+        if (startTour != _startTour) {
+            _startTour = startTour;
+            _worker.submit(() -> _solver.setStartTour(startTour));
         }
 
-        redrawGraph();
+        // Paint the latest state published by the worker and ask it for the next one
+        SolverSnapshot snapshot = _worker.getSnapshot();
+        _worker.requestSnapshot();
+
+        redrawGraph(snapshot);
+        _window.showGraphInfo(snapshot.getNodes().size(), snapshot.getGreedyPathLength());
         _window.repaint();
     }
 
+    private void startAlgorithm(Algorithm algorithm) {
+        _worker.submit(() -> {
+            _worker.clearFailure();
+            _solver.start(algorithm);
+        });
+    }
+
     /**
-     * Creates a new random tour for hill-climbing by using nearest-neighbor algorithm
-     * but every so often picking an edge completely at random 
+     * Stops the running algorithm and replaces the graph with randomly placed nodes. Nodes are placed
+     * to fill the pane, or for large counts an area scaled up to leave about GENERATE_AREA_PER_NODE
+     * square pixels per node, with the view zoomed out to fit.
      */
-    private List<Node> createRandomTour(double randomEdgeChance) {
-        //
-        List<Node> remainingNodes = new ArrayList<Node>(_graph.getNodes());
-        List<Node> randomTour = new ArrayList<Node>();
-
-        if (remainingNodes.isEmpty()) {
-            return randomTour;
-        }
-
-        List<Node> bestPath = _graph.getBestPath();
-
-        Random rand = new Random();
-        while (!remainingNodes.isEmpty()) {
-            Node nextNode = null;
-            if (randomTour.isEmpty() || rand.nextDouble() < randomEdgeChance) {
-                // Pick a remaining city entirely at random
-                int randIndex = rand.nextInt(remainingNodes.size());
-                nextNode = remainingNodes.get(randIndex);
-            }
-            else {
-                // Using the best tour found so far, we will travel to the next city from the current city in that tour
-                // If the next city IS NOT in the remaining nodes, then simply revert to nearest (remaining) neighbor
-                Node currentNode = randomTour.get(randomTour.size() - 1);
-                int indexOfCurrentNodeInBestPath = bestPath.indexOf(currentNode);
-                if (indexOfCurrentNodeInBestPath < bestPath.size() - 2 &&
-                        remainingNodes.contains(bestPath.get(indexOfCurrentNodeInBestPath + 1))) {
-                    // Travel along best path already found rather than nearest neighbor
-                    nextNode = bestPath.get(indexOfCurrentNodeInBestPath + 1);
-                }
-                else {
-                    // Pick nearest node as the next node in the best path from current node has already been visited
-                    long closestDistance = 0;
-                    for (Node node : remainingNodes) {
-                        long distance = currentNode.distance(node);
-                        if (nextNode == null || distance < closestDistance) {
-                            nextNode = node;
-                            closestDistance = distance;
-                        }
-                    }
-                }
+    private void generateNodes(int count, long seed) {
+        final int padding = 15;
+        TSPDrawPane surface = _window.getSurface();
+        int width = Math.max(1, surface.getWidth() - padding * 2);
+        int height = Math.max(1, surface.getHeight() - padding * 2);
+        double scale = Math.sqrt((double) count * GENERATE_AREA_PER_NODE / ((double) width * height));
+        if (scale > 1) {
+            width = (int) Math.ceil(width * scale);
+            height = (int) Math.ceil(height * scale);
+            surface.fitToView(0, 0, width + padding * 2, height + padding * 2);
+        }
+
+        int areaWidth = width;
+        int areaHeight = height;
+        _worker.submitGraphChange(() -> {
+            _solver.stop();
+            _graph.clear();
+            Random rand = new Random(seed);
+            double[] xCoords = new double[count];
+            double[] yCoords = new double[count];
+            for (int i = 0; i < count; i++) {
+                xCoords[i] = rand.nextInt(areaWidth) + padding;
+                yCoords[i] = rand.nextInt(areaHeight) + padding;
             }
-
-            randomTour.add(nextNode);
-            remainingNodes.remove(nextNode);
-        }
-
-        // Go back to starting node then return tour
-        randomTour.add(randomTour.get(0));
-        return randomTour;
+            _graph.addNodes(xCoords, yCoords, count);
+            SwingUtilities.invokeLater(_window::clearImprovement);
+        });
     }
 
-    private void updateHillClimbing() {
-        // Start from best tour found OR greedy tour (if no best tour exists) and perform hill climbing from there
-        if (_currentWorkingTour == null) {
-            _currentWorkingTour = (!_graph.getBestPath().isEmpty()) ? _graph.getBestPath() : _graph.getGreedyPath();
-        }
-
-        List<Node> bestTourLocated = new ArrayList<Node>(_currentWorkingTour);
-        long bestTourLength = _graph.calculatePathLength(bestTourLocated);
-
-        // Step function will loop through the best tour found so far and find
-        // the two nodes that, when swapped, grant the best new tour
-        // Take care not to mess with the first or last nodes in the list (to keep the tour intact)
-        for (int i = 1; i < _currentWorkingTour.size() - 2; i++) {
-            for (int k = i + 1; k < _currentWorkingTour.size() - 1; k++) {
-                // Swap nodes at position i and k, then calculate length and compare
-                List<Node> testPath = new ArrayList<Node>(_currentWorkingTour);
-                Collections.swap(testPath, i, k);
-
-                long testPathLength = _graph.calculatePathLength(testPath);
-                if (testPathLength < bestTourLength) {
-                    bestTourLocated = testPath;
-                    bestTourLength = testPathLength;
-                }
-            }
-        }
+    /**
+     * Redraws the layers of the display whose contents have changed since the last frame. Layers are
+     * keyed by the snapshot objects they show, which the worker only replaces when they change.
+     */
+    private void redrawGraph(SolverSnapshot snapshot) {
 
-        if (!_currentWorkingTour.equals(bestTourLocated)) {
-            // new best tour was located -- local maximum not yet reached
-            _currentWorkingTour = bestTourLocated;
-            _graph.setBestPath(bestTourLocated);
-        }
-        else {
-            // Local maximum found, so restart from random tour
-            //System.out.println("Local maximum reached... Resetting to random tour.");
-            _currentWorkingTour = createRandomTour(0.05d);
-        }
-    }
+        TSPDrawPane surface = _window.getSurface();
 
-    private void updateTwoOpt() {
-        // Start from best tour found OR greedy tour (if no best tour exists) and perform two-opt from there
-        if (_currentWorkingTour == null) {
-            _currentWorkingTour = (!_graph.getBestPath().isEmpty()) ? _graph.getBestPath() : _graph.getGreedyPath();
-        }
+        String failure = _worker.getFailure();
+        _window.setStatusText((failure != null) ? "Stopped: " + failure : "Running: " + snapshot.getAlgorithm().toString());
 
-        // Step function will perform a 2-opt move
-        // A 2-opt move means picking every pair of non-adjacent edges in the graph, 
-        // eliminating these edges, and reconnecting the graph -- by eliminating two non adjacent edges,
-        // only a SINGLE method (that does not recreate the original tour) exists to reconnect these nodes
-        // - This is a very simple algorithm to translate into a single list of nodes
-        // --- 1. Iterate through every pair of nodes EXCEPT the first and last node in the list (same node in cyclic graph)
-        // --- 2. Reverse the sublist from the first node to last node selected
-        // ** i.e. for a list with 10 nodes (0..9) we choose ALL PAIRS of indices from 1..8 and the first reverse
-        // ** attempted should be indices [1, 2] and the last reverse attempted should be indices [7, 8]
-
-        // Initialize best path to the current two opt tour generated 
-        List<Node> bestTourLocated = new ArrayList<Node>(_currentWorkingTour);
-        long bestTourLength = _graph.calculatePathLength(bestTourLocated);
-
-        List<Node> currTwoOptMove = new ArrayList<>(_currentWorkingTour);
-
-        // Set up a nested loop to attempt every possible (valid) pair of indices in the list
-        for (int firstNode = 1; firstNode < _currentWorkingTour.size() - 2; firstNode++) {
-            for (int secondNode = firstNode + 2; secondNode < _currentWorkingTour.size(); secondNode++) {
-
-                // Reverse the nodes between first and second nodes (secondNode is exclusive)
-                Collections.reverse(currTwoOptMove.subList(firstNode, secondNode));
-
-                long currTourLength = _graph.calculatePathLength(currTwoOptMove);
-                if (currTourLength < bestTourLength) {
-                    bestTourLocated = new ArrayList<>(currTwoOptMove);
-                    bestTourLength = currTourLength;
-                }
+        List<Node> nodes = snapshot.getNodes();
 
-                // Reset changes made above before next iteration
-                // this avoids needing to repeatedly copy the entire list
-                Collections.reverse(currTwoOptMove.subList(firstNode, secondNode));
+        // Display greedy path if selected, replacing its first node with a 'red' circle
+        if (_window.isDisplayGreedyChecked()) {
+            List<Node> path = snapshot.getGreedyPath();
+            if (surface.beginLayer(Layer.GREEDY_PATH, path)) {
+                drawPath(Layer.GREEDY_PATH, path, Color.CYAN);
+            }
+            if (surface.beginLayer(Layer.HIGHLIGHTS, path) && path.size() > 0) {
+                drawNode(Layer.HIGHLIGHTS, path.get(0), Color.RED);
             }
-        }
-
-        if (!_currentWorkingTour.equals(bestTourLocated)) {
-            // new best tour was located -- local maximum not yet reached
-            _currentWorkingTour = bestTourLocated;
-            _graph.setBestPath(bestTourLocated);
         }
         else {
-            // Local maximum found, so restart from random tour
-            //System.out.println("Local maximum reached... Resetting to random tour.");
-            _currentWorkingTour = createRandomTour(0.20);
+            surface.clearLayer(Layer.GREEDY_PATH);
+            surface.clearLayer(Layer.HIGHLIGHTS);
         }
-    }
 
-    private void updateThreeOpt() {
-        // Start from best tour found OR greedy tour (if no best tour exists) and perform two-opt from there
-        if (_currentWorkingTour == null) {
-            _currentWorkingTour = (!_graph.getBestPath().isEmpty()) ? _graph.getBestPath() : _graph.getGreedyPath();
+        PheromoneMatrix pheromones = snapshot.getPheromones();
+        if (!_window.isDisplayDataChecked()) {
+            surface.clearLayer(Layer.BACKGROUND_DATA);
         }
-
-        // Initialize best path to the current two opt tour generated
-        List<Node> bestTourLocated = new ArrayList<Node>(_currentWorkingTour);
-        long bestTourLength = _graph.calculatePathLength(bestTourLocated);
-
-        List<Node> currThreeOptMove = new ArrayList<>(_currentWorkingTour);
-
-        // Set up a nested loop to attempt every possible (valid) pair of indices in the list
-        for (int firstNode = 1; firstNode < _currentWorkingTour.size() - 3; firstNode++) {
-            for (int secondNode = firstNode + 2; secondNode < _currentWorkingTour.size() - 2; secondNode++) {
-                for (int thirdNode = secondNode + 2; thirdNode < _currentWorkingTour.size(); thirdNode++) {
-
-                    // Generate all 3-opt permutations and compare to best
-                    for (int i = 0; i < 7; i++) {
-
-                        switch (i) {
-                            case 0:
-                                Collections.reverse(currThreeOptMove.subList(firstNode, secondNode));
-                                break;
-                            case 1:
-                                Collections.reverse(currThreeOptMove.subList(secondNode, thirdNode));
-                                break;
-                            case 2:
-                                Collections.reverse(currThreeOptMove.subList(firstNode, secondNode));
-                                Collections.reverse(currThreeOptMove.subList(secondNode, thirdNode));
-                                break;
-                            case 3:
-                                Collections.reverse(currThreeOptMove.subList(firstNode, thirdNode));
-                                break;
-                            case 4:
-                                Collections.reverse(currThreeOptMove.subList(firstNode, thirdNode));
-                                Collections.reverse(currThreeOptMove.subList(firstNode, secondNode));
-                                break;
-                            case 5:
-                                Collections.reverse(currThreeOptMove.subList(firstNode, thirdNode));
-                                Collections.reverse(currThreeOptMove.subList(secondNode, thirdNode));
-                                break;
-                            case 6:
-                                Collections.reverse(currThreeOptMove.subList(firstNode, thirdNode));
-                                Collections.reverse(currThreeOptMove.subList(firstNode, secondNode));
-                                Collections.reverse(currThreeOptMove.subList(secondNode, thirdNode));
-                                break;
-                        }
-
-                        long currTourLength = _graph.calculatePathLength(currThreeOptMove);
-                        if (currTourLength < bestTourLength) {
-                            bestTourLocated = new ArrayList<>(currThreeOptMove);
-                            bestTourLength = currTourLength;
-                        }
-
-                        switch (i) {
-                            case 0:
-                                Collections.reverse(currThreeOptMove.subList(firstNode, secondNode));
-                                break;
-                            case 1:
-                                Collections.reverse(currThreeOptMove.subList(secondNode, thirdNode));
-                                break;
-                            case 2:
-                                Collections.reverse(currThreeOptMove.subList(firstNode, secondNode));
-                                Collections.reverse(currThreeOptMove.subList(secondNode, thirdNode));
-                                break;
-                            case 3:
-                                Collections.reverse(currThreeOptMove.subList(firstNode, thirdNode));
-                                break;
-                            case 4:
-                                Collections.reverse(currThreeOptMove.subList(firstNode, secondNode));
-                                Collections.reverse(currThreeOptMove.subList(firstNode, thirdNode));
-                                break;
-                            case 5:
-                                Collections.reverse(currThreeOptMove.subList(secondNode, thirdNode));
-                                Collections.reverse(currThreeOptMove.subList(firstNode, thirdNode));
-                                break;
-                            case 6:
-                                Collections.reverse(currThreeOptMove.subList(firstNode, secondNode));
-                                Collections.reverse(currThreeOptMove.subList(secondNode, thirdNode));
-                                Collections.reverse(currThreeOptMove.subList(firstNode, thirdNode));
-                                break;
-                        }
-
-                    }
-
-                }
+        // Display pheromone trails if running ANTS, which change with every snapshot
+        else if (snapshot.getAlgorithm().equals(Algorithm.ANTS) && pheromones != null && snapshot.getCandidates() != null) {
+            if (surface.beginLayer(Layer.BACKGROUND_DATA, snapshot)) {
+                _heatmap.reset(surface.getWidth(), surface.getHeight());
+                drawPheromones(nodes, pheromones, snapshot.getCandidates());
+                surface.drawImage(Layer.BACKGROUND_DATA, _heatmap.getImage());
             }
         }
-
-        if (!_currentWorkingTour.equals(bestTourLocated)) {
-            // new best tour was located -- local maximum not yet reached
-            _currentWorkingTour = bestTourLocated;
-            _graph.setBestPath(bestTourLocated);
+        // Display most recent tour generated if running hill climbing or two opt
+        else if (snapshot.getAlgorithm().equals(Algorithm.HILL_CLIMBING) || snapshot.getAlgorithm().equals(Algorithm.TWO_OPT)) {
+            List<Node> path = snapshot.getWorkingTour();
+            if (path == null) {
+                surface.clearLayer(Layer.BACKGROUND_DATA);
+            }
+            else if (surface.beginLayer(Layer.BACKGROUND_DATA, path)) {
+                drawPath(Layer.BACKGROUND_DATA, path, Color.RED);
+            }
         }
         else {
-            // Local maximum found, so restart from random tour
-            //System.out.println("Local maximum reached... Resetting to random tour.");
-            _currentWorkingTour = createRandomTour(0.20);
-        }
-    }
-
-    private void initializeAgents(int numAgents) {
-        _agents.clear();
-        for (int i = 0; i < numAgents; i++) {
-            _agents.add(new Agent(_graph));
-        }
-    }
-
-    private void updateAgents() {
-        // only update each agent so many times to avoid starving event queue
-        int maxUpdates = 5;
-        boolean allComplete = false;
-        while (maxUpdates > 0) {
-            //
-            allComplete = true;
-            for (Agent agent : _agents) {
-                if (!agent.complete()) {
-                    agent.update();
-                    allComplete = false;
-                }
-            }
-            if (allComplete) break;
-            maxUpdates--;
-            if (maxUpdates <= 0) break;
+            surface.clearLayer(Layer.BACKGROUND_DATA);
         }
 
-        if (allComplete) {
-            for (Agent agent : _agents) {
-                // Get each agent's tour and see if it's the best path (setting best path fails/returns false if not better than than best path so far)
-                List<Node> path = agent.getTour();
-                _graph.setBestPath(path);
-
-                // Perform local pheromone updating
-                agent.updateEdgeLocal();
-                agent.reset();
+        // Display shortest path found if one exists
+        if (_window.isDisplayBestChecked()) {
+            BestTour bestTour = snapshot.getBestTour();
+            if (surface.beginLayer(Layer.BEST_PATH, bestTour)) {
+                drawPath(Layer.BEST_PATH, bestTour.getPath(), Color.GREEN);
             }
         }
-
-        // Perform global pheromone updating
-        updateEdgeGlobal();
-    }
-
-    private void updateEdgeGlobal() {
-
-        List<Node> path = _graph.getBestPath();
-        double pathLength = _graph.getBestPathLength();
-
-        // Find all edges used by the best path
-        Set<Edge> bestEdges = new HashSet<Edge>();
-        for (int i = 0; i < path.size() - 1; i++) {
-            Node node1 = path.get(i);
-            Node node2 = path.get(i + 1);
-            bestEdges.add(node1.getEdge(node2));
+        else {
+            surface.clearLayer(Layer.BEST_PATH);
         }
 
-        for (Node node1 : _graph.getNodes()) {
-            for (Node node2 : _graph.getNodes()) {
-                if (node1.equals(node2)) continue;
-
-                Edge edge = node1.getEdge(node2);
-                double pheromoneWeight = edge.getPheromoneWeight();
-                if (pheromoneWeight > 0) {
-                    pheromoneWeight = (1 - TSPSolver.DECAY_VALUE) * pheromoneWeight;
-                    if (bestEdges.contains(edge)) {
-                        // This edge is in the best path, so increase its pheromone level
-                        pheromoneWeight = pheromoneWeight + TSPSolver.DECAY_VALUE * (1 / pathLength);
-                    }
-                    edge.setPheromoneWeight(pheromoneWeight);
-                }
+        // Draw nodes
+        if (surface.beginLayer(Layer.NODES, nodes)) {
+            for (Node node : nodes) {
+                drawNode(Layer.NODES, node, Color.YELLOW);
             }
         }
     }
 
     /**
-     * Clears the display screen buffer and redraws all existing nodes and path
-     * data to the buffer.
+     * Draws the strongest pheromone trails into the heatmap (in screen coordinates of the current view):
+     * for each node only the HEATMAP_EDGES heaviest edges to its candidate neighbours, and only those
+     * above HEATMAP_MIN_WEIGHT.
      */
-    private void redrawGraph() {
-
-        _window.getSurface().clearBuffer();
-
-        _window.setStatusText("Running: " + _runningAlgorithm.toString());
-
-        // Display greedy path if selected
-        if (_window.isDisplayGreedyChecked()) {
-            drawPath(_graph.getGreedyPath(), Color.CYAN);
-        }
-
-        if (_window.isDisplayDataChecked()) {
-            // Display pheromone trails if running ANTS (SLOW!)
-            if (_runningAlgorithm.equals(Algorithm.ANTS)) {
-                for (Node node1 : _graph.getNodes()) {
-                    for (Node node2 : _graph.getNodes()) {
-                        if (node1.equals(node2)) continue;
-
-                        Edge edge = node1.getEdge(node2);
-                        float colorWeight = (float) edge.getPheromoneWeight();
-                        if (colorWeight > 1.0) colorWeight = 1.0f;
-                        if (colorWeight > 0.25) {
-                            drawEdge(node1, node2, new Color(0f, 0f, colorWeight));
-                        }
-                    }
+    private void drawPheromones(List<Node> nodes, PheromoneMatrix pheromones, NeighborLists candidates) {
+        TSPDrawPane surface = _window.getSurface();
+        int nodeCount = Math.min(pheromones.getNodeCount(), nodes.size());
+        int[] topNodes = new int[HEATMAP_EDGES];
+        double[] topWeights = new double[HEATMAP_EDGES];
+        for (int i = 0; i < nodeCount; i++) {
+            // Keep the heaviest edges sorted by insertion (there are only a handful of them)
+            int topCount = 0;
+            for (int index = 0; index < candidates.size(); index++) {
+                int j = candidates.get(i, index);
+                if (j >= nodeCount) continue;
+
+                double weight = pheromones.get(i, j);
+                if (weight <= HEATMAP_MIN_WEIGHT) continue;
+                if (topCount == HEATMAP_EDGES && weight <= topWeights[topCount - 1]) continue;
+
+                int position = (topCount < HEATMAP_EDGES) ? topCount++ : topCount - 1;
+                while (position > 0 && topWeights[position - 1] < weight) {
+                    topWeights[position] = topWeights[position - 1];
+                    topNodes[position] = topNodes[position - 1];
+                    position--;
                 }
+                topWeights[position] = weight;
+                topNodes[position] = j;
             }
-            // Display most recent hill-climbing tour generated if running hill climbing
-            else if (_runningAlgorithm.equals(Algorithm.HILL_CLIMBING)) {
-                drawPath(_currentWorkingTour, Color.RED);
-            }
-            // Display most recent two-opt tour generated if running two opt algorithm
-            else if (_runningAlgorithm.equals(Algorithm.TWO_OPT)) {
-                drawPath(_currentWorkingTour, Color.RED);
-            }
-        }
-
-        // Display shortest path found if one exists
-        if (_window.isDisplayBestChecked()) {
-            drawPath(_graph.getBestPath(), Color.GREEN);
-        }
 
-        // Draw nodes
-        for (Node node : _graph.getNodes()) {
-            drawNode(node, Color.YELLOW);
-        }
-
-        // Replace the first node in greedy path with 'red' circle if greedy path is enabled 
-        if (_window.isDisplayGreedyChecked()) {
-            List<Node> path = _graph.getGreedyPath();
-            if (path.size() > 0) {
-                Node node = path.get(0);
-                drawNode(node, Color.RED);
+            Node node1 = nodes.get(i);
+            for (int k = 0; k < topCount; k++) {
+                Node node2 = nodes.get(topNodes[k]);
+                _heatmap.drawLine(surface.toScreenX(node1.getX()), surface.toScreenY(node1.getY()),
+                        surface.toScreenX(node2.getX()), surface.toScreenY(node2.getY()), topWeights[k]);
             }
         }
     }
 
-    private void drawPath(List<Node> path, Color color) {
+    private void drawPath(Layer layer, List<Node> path, Color color) {
         if (path != null) {
             for (int i = 0; i < path.size() - 1; i++) {
                 Node node1 = path.get(i);
                 Node node2 = path.get(i + 1);
-                drawEdge(node1, node2, color);
+                drawEdge(layer, node1, node2, color);
             }
         }
     }
@@ -540,16 +320,16 @@ class MainEventLoop extends JPanel implements ActionListener {
     /**
      * Draws a line between the two nodes using the specified color.
      */
-    private void drawEdge(Node node1, Node node2, Color color) {
-        _window.getSurface().drawLine(node1.xPos(), node1.yPos(), node2.xPos(), node2.yPos(), color);
+    private void drawEdge(Layer layer, Node node1, Node node2, Color color) {
+        _window.getSurface().drawLine(layer, node1.getX(), node1.getY(), node2.getX(), node2.getY(), color);
     }
 
     /**
      * Draws the specified node with the given color.
      */
-    private void drawNode(Node node, Color color) {
+    private void drawNode(Layer layer, Node node, Color color) {
         final int radius = 2;
-        _window.getSurface().drawCircle(node.xPos(), node.yPos(), radius, color);
+        _window.getSurface().drawCircle(layer, node.getX(), node.getY(), radius, color);
     }
 
 }
@@ -0,0 +1,49 @@
+package tsp.graph;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the best tour found in a graph: the closed path (first node repeated at
+ * the end), its length and the time it was found (both in ms since the epoch and as a
+ * System.nanoTime() value for measuring elapsed times).
+ */
+public final class BestTour {
+
+    public static final BestTour EMPTY = new BestTour(Collections.<Node>emptyList(), 0, 0, 0);
+
+    private final List<Node> _path;
+    private final long _length;
+    private final long _timestamp;
+    private final long _nanoTime;
+
+    BestTour(List<Node> path, long length, long timestamp, long nanoTime) {
+        _path = path;
+        _length = length;
+        _timestamp = timestamp;
+        _nanoTime = nanoTime;
+    }
+
+    /**
+     * Returns the path as a read-only list.
+     */
+    public List<Node> getPath() {
+        return _path;
+    }
+
+    public long getLength() {
+        return _length;
+    }
+
+    public long getTimestamp() {
+        return _timestamp;
+    }
+
+    public long getNanoTime() {
+        return _nanoTime;
+    }
+
+    public boolean isEmpty() {
+        return _path.isEmpty();
+    }
+}
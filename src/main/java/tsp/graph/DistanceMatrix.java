@@ -0,0 +1,127 @@
+package tsp.graph;
+
+import java.util.Arrays;
+
+/**
+ * Primitive store of node coordinates and the distances between them, indexed by node id.
+ * Distances are cached in a flat lower-triangular array so appending a node only appends
+ * a single row; once the graph grows past MAX_CACHED_NODES the cache is dropped and
+ * distances are computed directly from the coordinate arrays (using the distance metric)
+ * instead.
+ */
+class DistanceMatrix {
+
+    static final int MAX_CACHED_NODES = 8192;
+
+    private double[] _xCoords = new double[16];
+    private double[] _yCoords = new double[16];
+    private int _count = 0;
+    private DistanceMetric _metric = DistanceMetric.EUC_2D;
+
+    private int[] _distances = new int[0];
+
+    /**
+     * Removes all nodes and switches to the specified distance metric.
+     */
+    void clear(DistanceMetric metric) {
+        _count = 0;
+        _metric = metric;
+        _distances = new int[0];
+    }
+
+    DistanceMetric getMetric() {
+        return _metric;
+    }
+
+    /**
+     * Appends a node with the specified coordinates and returns its id.
+     */
+    int add(double xPos, double yPos) {
+        int id = append(xPos, yPos);
+        fillRows(id);
+        return id;
+    }
+
+    /**
+     * Appends a node with the specified coordinates and returns its id, without filling its row
+     * of the distance cache. Distances to the node are invalid until fillRows has been called.
+     */
+    int append(double xPos, double yPos) {
+        ensureCapacity(_count + 1);
+        int id = _count++;
+        _xCoords[id] = xPos;
+        _yCoords[id] = yPos;
+        return id;
+    }
+
+    /**
+     * Appends a node for each pair of coordinates in the arrays and fills the new rows
+     * of the distance cache in a single pass.
+     */
+    void addAll(double[] xCoords, double[] yCoords, int count) {
+        ensureCapacity(_count + count);
+        System.arraycopy(xCoords, 0, _xCoords, _count, count);
+        System.arraycopy(yCoords, 0, _yCoords, _count, count);
+        int firstId = _count;
+        _count += count;
+        fillRows(firstId);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > _xCoords.length) {
+            int newCapacity = Math.max(capacity, _xCoords.length * 2);
+            _xCoords = Arrays.copyOf(_xCoords, newCapacity);
+            _yCoords = Arrays.copyOf(_yCoords, newCapacity);
+        }
+    }
+
+    /**
+     * Fills the cached rows of every node from firstId onwards (or drops the cache once
+     * the node count exceeds MAX_CACHED_NODES).
+     */
+    void fillRows(int firstId) {
+        if (_count > MAX_CACHED_NODES) {
+            _distances = null;
+            return;
+        }
+
+        if (TriangularArrays.size(_count) > _distances.length) {
+            _distances = Arrays.copyOf(_distances, Math.min(TriangularArrays.size(MAX_CACHED_NODES), Math.max(TriangularArrays.size(_count), _distances.length * 2)));
+        }
+        for (int id = firstId; id < _count; id++) {
+            int offset = TriangularArrays.size(id);
+            for (int j = 0; j < id; j++) {
+                _distances[offset + j] = compute(id, j);
+            }
+        }
+    }
+
+    int distance(int i, int j) {
+        if (i == j) return 0;
+        if (_distances == null) return compute(i, j);
+        return _distances[TriangularArrays.index(i, j)];
+    }
+
+    int size() {
+        return _count;
+    }
+
+    double xPos(int id) {
+        return _xCoords[id];
+    }
+
+    double yPos(int id) {
+        return _yCoords[id];
+    }
+
+    /**
+     * Creates a spatial index over a snapshot of the current coordinates.
+     */
+    KdTree createSpatialIndex() {
+        return new KdTree(_xCoords, _yCoords, _count);
+    }
+
+    private int compute(int i, int j) {
+        return _metric.distance(_xCoords[i], _yCoords[i], _xCoords[j], _yCoords[j]);
+    }
+}
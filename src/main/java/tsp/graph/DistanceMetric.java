@@ -0,0 +1,67 @@
+package tsp.graph;
+
+/**
+ * Distance functions between two points, following the TSPLIB edge weight types.
+ * All distances are rounded to integers exactly as specified by TSPLIB so tour
+ * lengths can be compared with published results.
+ */
+public enum DistanceMetric {
+
+    /** Euclidean distance rounded to the nearest integer. */
+    EUC_2D {
+        @Override
+        public int distance(double x1, double y1, double x2, double y2) {
+            double dx = x1 - x2;
+            double dy = y1 - y2;
+            return (int) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+        }
+    },
+
+    /** Euclidean distance rounded up to the next integer. */
+    CEIL_2D {
+        @Override
+        public int distance(double x1, double y1, double x2, double y2) {
+            double dx = x1 - x2;
+            double dy = y1 - y2;
+            return (int) Math.ceil(Math.sqrt(dx * dx + dy * dy));
+        }
+    },
+
+    /** Pseudo-euclidean distance used by the att48 and att532 instances. */
+    ATT {
+        @Override
+        public int distance(double x1, double y1, double x2, double y2) {
+            double dx = x1 - x2;
+            double dy = y1 - y2;
+            double r = Math.sqrt((dx * dx + dy * dy) / 10.0);
+            int t = (int) (r + 0.5);
+            return (t < r) ? t + 1 : t;
+        }
+    },
+
+    /** Great circle distance in km, with coordinates given as latitude/longitude in DDD.MM format. */
+    GEO {
+        private static final double PI = 3.141592;
+        private static final double EARTH_RADIUS = 6378.388;
+
+        @Override
+        public int distance(double x1, double y1, double x2, double y2) {
+            double latitude1 = radians(x1);
+            double longitude1 = radians(y1);
+            double latitude2 = radians(x2);
+            double longitude2 = radians(y2);
+            double q1 = Math.cos(longitude1 - longitude2);
+            double q2 = Math.cos(latitude1 - latitude2);
+            double q3 = Math.cos(latitude1 + latitude2);
+            return (int) (EARTH_RADIUS * Math.acos(0.5 * ((1.0 + q1) * q2 - (1.0 - q1) * q3)) + 1.0);
+        }
+
+        private double radians(double coordinate) {
+            int degrees = (int) coordinate;
+            double minutes = coordinate - degrees;
+            return PI * (degrees + 5.0 * minutes / 3.0) / 180.0;
+        }
+    };
+
+    public abstract int distance(double x1, double y1, double x2, double y2);
+}
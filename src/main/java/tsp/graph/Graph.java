@@ -1,61 +1,71 @@
 package tsp.graph;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Graph {
 
-    private Set<Node> _nodes = new HashSet<Node>();
+    private static final int MIN_DISTANCE = 5;
+
+    // Number of start nodes tried by the nearest-neighbour construction of the greedy path
+    private static final int DEFAULT_GREEDY_START_COUNT = 16;
+
+    private ArrayList<Node> _nodes = new ArrayList<Node>();
+    private DistanceMatrix _distanceMatrix = new DistanceMatrix();
+    private SpatialHash _spatialHash = new SpatialHash(_distanceMatrix, MIN_DISTANCE);
+    private NeighborLists _neighborLists = null;
     private List<Node> _greedyPath = new ArrayList<Node>();
     private long _greedyPathLength = 0;
+    private int _greedyStartCount = DEFAULT_GREEDY_START_COUNT;
 
-    private List<Node> _bestPath = new ArrayList<Node>();
-    private long _bestPathLength = 0;
-    private long _elapsedTimeToBestPath = 0;
+    private AtomicReference<BestTour> _bestTour = new AtomicReference<BestTour>(BestTour.EMPTY);
 
     /**
      * Erase all nodes and edges from graph.
      */
     public void clear() {
+        clear(DistanceMetric.EUC_2D);
+    }
+
+    private void clear(DistanceMetric metric) {
         _nodes.clear();
+        _distanceMatrix.clear(metric);
+        _spatialHash.clear();
         resetCache();
     }
 
     private void resetCache() {
+        _neighborLists = null;
         _greedyPath.clear();
         _greedyPathLength = 0;
-        _bestPath.clear();
-        _bestPathLength = 0;
-        _elapsedTimeToBestPath = 0;
+        _bestTour.set(BestTour.EMPTY);
     }
 
     /**
-     * Create a new node and add it to the graph. This method will also
-     * automatically create edges linking the new node to all existing nodes.
-     * Returns the newly created node.
+     * Create a new node and add it to the graph. The node is assigned the next
+     * free id and its distances to all existing nodes are added to the distance
+     * matrix. Returns the newly created node (or null if it is too close to an
+     * existing node).
      *
      * @param xPos
      * @param yPos
      */
     public Node createNode(int xPos, int yPos) {
 
-        // Create the new node
-        Node newNode = new Node(xPos, yPos);
-
         // Check if node is too close to an existing node; if so, do nothing!
-        final int MIN_DISTANCE = 5;
-        for (Node node : _nodes) {
-            if (newNode.distance(node) < MIN_DISTANCE) return null;
-        }
+        if (_spatialHash.containsCloserThan(xPos, yPos, MIN_DISTANCE)) return null;
 
-        // Create edges linking this node to all existing nodes
-        for (Node node : _nodes) {
-            createEdge(newNode, node);
-        }
-
-        // And finally, add node to graph
+        // Create the new node and add it to graph, distance matrix and spatial hash (all indexed by node id)
+        Node newNode = new Node(_nodes.size(), xPos, yPos);
+        _distanceMatrix.add(xPos, yPos);
+        _spatialHash.add(newNode.getId());
         _nodes.add(newNode);
 
         // Reset cached data
@@ -65,10 +75,78 @@ public class Graph {
     }
 
     /**
-     * Create an edge connecting the specified nodes.
+     * Adds a node for each pair of coordinates in the arrays and returns the number of nodes added.
+     * Like createNode, coordinates too close to an existing node (or to one added earlier from the
+     * arrays) are skipped, but the distance cache is filled and cached data are reset only once,
+     * after every node has been added, so large batches take O(n) time.
+     */
+    public int addNodes(double[] xCoords, double[] yCoords, int count) {
+        int firstId = _nodes.size();
+        _nodes.ensureCapacity(firstId + count);
+        for (int i = 0; i < count; i++) {
+            if (_spatialHash.containsCloserThan(xCoords[i], yCoords[i], MIN_DISTANCE)) continue;
+
+            int id = _distanceMatrix.append(xCoords[i], yCoords[i]);
+            _spatialHash.add(id);
+            _nodes.add(new Node(id, xCoords[i], yCoords[i]));
+        }
+        _distanceMatrix.fillRows(firstId);
+        resetCache();
+        return _nodes.size() - firstId;
+    }
+
+    /**
+     * Replaces the contents of the graph with one node per pair of coordinates, using the
+     * specified metric for all distances. Node ids follow the order of the arrays and no
+     * nodes are rejected (even duplicates), so ids match the instance the coordinates came from.
+     * The distance cache and spatial hash are built once after all nodes have been added.
+     */
+    public void load(double[] xCoords, double[] yCoords, int count, DistanceMetric metric) {
+        clear(metric);
+        _distanceMatrix.addAll(xCoords, yCoords, count);
+        _nodes.ensureCapacity(count);
+        for (int id = 0; id < count; id++) {
+            _nodes.add(new Node(id, xCoords[id], yCoords[id]));
+            _spatialHash.add(id);
+        }
+    }
+
+    public DistanceMetric getMetric() {
+        return _distanceMatrix.getMetric();
+    }
+
+    /**
+     * Returns the distance between the nodes with the specified ids.
      */
-    private void createEdge(Node node1, Node node2) {
-        node1.addEdge(node2);
+    public int distance(int id1, int id2) {
+        return _distanceMatrix.distance(id1, id2);
+    }
+
+    /**
+     * Returns the distance between the specified nodes.
+     */
+    public int distance(Node node1, Node node2) {
+        return _distanceMatrix.distance(node1.getId(), node2.getId());
+    }
+
+    /**
+     * Creates a new k-d tree over the current nodes. Each caller receives its own
+     * instance so nodes can be removed from it without affecting anyone else.
+     */
+    public KdTree createSpatialIndex() {
+        return _distanceMatrix.createSpatialIndex();
+    }
+
+    /**
+     * Returns the cached lists of the k nearest neighbours of each node,
+     * (re)building them if they are missing or were built for a different k.
+     */
+    public NeighborLists getNeighborLists(int k) {
+        int size = Math.max(0, Math.min(k, _nodes.size() - 1));
+        if (_neighborLists == null || _neighborLists.size() != size) {
+            _neighborLists = new NeighborLists(createSpatialIndex(), k);
+        }
+        return _neighborLists;
     }
 
     /**
@@ -80,67 +158,157 @@ public class Graph {
         long pathLength = 0;
         if (path != null) {
             for (int i = 0; i < path.size() - 1; i++) {
-                long distance = path.get(i).distance(path.get(i + 1));
-                pathLength += distance;
+                pathLength += distance(path.get(i), path.get(i + 1));
             }
         }
         return pathLength;
     }
 
     /**
-     * Finds the best Greedy path inside the current graph and caches it
-     *
-     * @return
+     * Calculates the length of a closed tour given as an array of node ids
+     * (the edge from the last node back to the first is included).
      */
-    private List<Node> calculateGreedyPath(int startNodeIndex) {
+    public long calculateTourLength(int[] tour) {
+        long tourLength = 0;
+        if (tour != null && tour.length > 1) {
+            for (int i = 0; i < tour.length - 1; i++) {
+                tourLength += distance(tour[i], tour[i + 1]);
+            }
+            tourLength += distance(tour[tour.length - 1], tour[0]);
+        }
+        return tourLength;
+    }
 
-        List<Node> greedyPath = new ArrayList<Node>();
-        Set<Node> remainingNodes = getNodes();
+    /**
+     * Converts a closed path (first node repeated at the end) into an array of node ids.
+     */
+    public int[] toTour(List<Node> path) {
+        int size = (path.size() > 1) ? path.size() - 1 : path.size();
+        int[] tour = new int[size];
+        for (int i = 0; i < size; i++) {
+            tour[i] = path.get(i).getId();
+        }
+        return tour;
+    }
 
-        if (_nodes.size() < 3) {
-            return greedyPath;
+    /**
+     * Converts an array of node ids into a closed path (first node repeated at the end).
+     */
+    public List<Node> toPath(int[] tour) {
+        List<Node> path = new ArrayList<Node>(tour.length + 1);
+        for (int id : tour) {
+            path.add(_nodes.get(id));
+        }
+        if (tour.length > 0) {
+            path.add(_nodes.get(tour[0]));
         }
+        return path;
+    }
+
+    /**
+     * Sets how many start nodes the nearest-neighbour construction of the greedy path tries
+     * (spread evenly over the node ids, always including node 0).
+     */
+    public void setGreedyStartCount(int greedyStartCount) {
+        _greedyStartCount = Math.max(1, greedyStartCount);
+        _greedyPath.clear();
+        _greedyPathLength = 0;
+    }
+
+    /**
+     * Builds a nearest-neighbour tour from the start node, using the spatial index (which has
+     * every node restored first) to find the closest unvisited node at each step.
+     */
+    private int[] calculateGreedyTour(KdTree remainingNodes, int startNode) {
+        remainingNodes.restore();
 
-        Node currNode = remainingNodes.iterator().next();
-        greedyPath.add(currNode);
+        int[] tour = new int[_nodes.size()];
+        int currNode = startNode;
+        tour[0] = currNode;
         remainingNodes.remove(currNode);
 
-        while (remainingNodes.size() > 0) {
-            // Find the closest node in remaining nodes list
-            Node closestNode = null;
-            long closestDistance = 0;
-            for (Node node : remainingNodes) {
-                long distance = currNode.distance(node);
-                if (closestNode == null || distance < closestDistance) {
-                    closestNode = node;
-                    closestDistance = distance;
-                }
-            }
-            // Add closest node to our path, set it as current node, and remove it from remaining nodes
-            greedyPath.add(closestNode);
-            currNode = closestNode;
-            remainingNodes.remove(closestNode);
+        for (int i = 1; i < tour.length; i++) {
+            // Find the closest node in remaining nodes, add it to our tour and remove it from remaining nodes
+            Node node = _nodes.get(currNode);
+            currNode = remainingNodes.nearest(node.getX(), node.getY());
+            tour[i] = currNode;
+            remainingNodes.remove(currNode);
         }
 
-        // Add the first node in path to the end of path to travel back to starting point
-        greedyPath.add(greedyPath.get(0));
-
-        return greedyPath;
+        return tour;
     }
 
     /**
-     * Returns the cached greedy path (or calculates one if none is cached).
+     * Returns the cached greedy path (or calculates one if none is cached): the shortest of the
+     * nearest-neighbour tours built from a sample of start nodes, built in parallel.
      */
     public List<Node> getGreedyPath() {
-        if (_greedyPath.isEmpty()) {
-            for (int i = 0; i < _nodes.size(); i++) {
-                List<Node> currentTour = calculateGreedyPath(i);
-                long currentLength = calculatePathLength(currentTour);
-                if (_greedyPath.isEmpty() || currentLength < _greedyPathLength) {
-                    _greedyPath = currentTour;
-                    _greedyPathLength = currentLength;
+        if (_greedyPath.isEmpty() && _nodes.size() >= 3) {
+            int nodeCount = _nodes.size();
+            int startCount = Math.min(_greedyStartCount, nodeCount);
+            int threadCount = Math.min(startCount, Runtime.getRuntime().availableProcessors());
+
+            // Each task builds the tours of every threadCount'th start node with its own spatial index
+            List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>();
+            for (int t = 0; t < threadCount; t++) {
+                final int firstStart = t;
+                tasks.add(() -> {
+                    KdTree remainingNodes = createSpatialIndex();
+                    int[] bestTour = null;
+                    long bestLength = 0;
+                    for (int start = firstStart; start < startCount; start += threadCount) {
+                        int[] tour = calculateGreedyTour(remainingNodes, (int) ((long) start * nodeCount / startCount));
+                        long length = calculateTourLength(tour);
+                        if (bestTour == null || length < bestLength) {
+                            bestTour = tour;
+                            bestLength = length;
+                        }
+                    }
+                    return bestTour;
+                });
+            }
+
+            List<int[]> tours = new ArrayList<int[]>();
+            try {
+                if (threadCount == 1) {
+                    tours.add(tasks.get(0).call());
+                }
+                else {
+                    ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+                        Thread thread = new Thread(runnable, "greedy-worker");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    try {
+                        for (Future<int[]> future : executor.invokeAll(tasks)) {
+                            tours.add(future.get());
+                        }
+                    }
+                    finally {
+                        executor.shutdown();
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new ArrayList<Node>();
+            }
+            catch (Exception e) {
+                throw new RuntimeException("Greedy path construction failed", e);
+            }
+
+            // Keep the shortest tour (the first task's on ties, so the result does not depend on timing)
+            int[] bestTour = null;
+            long bestLength = 0;
+            for (int[] tour : tours) {
+                long length = calculateTourLength(tour);
+                if (bestTour == null || length < bestLength) {
+                    bestTour = tour;
+                    bestLength = length;
                 }
             }
+            _greedyPath = toPath(bestTour);
+            _greedyPathLength = bestLength;
         }
         return new ArrayList<Node>(_greedyPath);
     }
@@ -159,47 +327,59 @@ public class Graph {
      * Attempts to set the best path of the graph to the specified path.
      * Returns true if the argument is the best path found so far. Method
      * returns false if a better path was already found (and no change is made
-     * to the best path).
+     * to the best path), or if the path does not visit every node of the graph.
+     * Safe to call from any number of threads without locking: the new best tour
+     * is published with a compare-and-set on the current one.
      * @param path
      * @return
      */
     public boolean setBestPath(List<Node> path) {
-        if (path != null) {
-            long pathLength = calculatePathLength(path);
-            if (_bestPath.isEmpty() || pathLength < _bestPathLength) {
-                _bestPath = new ArrayList<Node>(path);
-                _bestPathLength = calculatePathLength(path);
-                return true;
+        if (path == null || path.size() != _nodes.size() + 1) return false;
+
+        long pathLength = calculatePathLength(path);
+        BestTour bestTour = null;
+        while (true) {
+            BestTour current = _bestTour.get();
+            if (!current.isEmpty() && pathLength >= current.getLength()) return false;
+
+            if (bestTour == null) {
+                bestTour = new BestTour(Collections.unmodifiableList(new ArrayList<Node>(path)), pathLength,
+                        System.currentTimeMillis(), System.nanoTime());
             }
+            if (_bestTour.compareAndSet(current, bestTour)) return true;
         }
-        return false;
-    }
-
-    public void setElapsedTime(long elapsedTime) {
-        _elapsedTimeToBestPath = elapsedTime;
     }
 
-    public long getElapsedTime() {
-        return _elapsedTimeToBestPath;
+    /**
+     * Returns a consistent snapshot of the best tour found so far (path, length and time found).
+     */
+    public BestTour getBestTour() {
+        return _bestTour.get();
     }
 
+    /**
+     * Returns the best path found so far as a read-only list (empty if there is none).
+     */
     public List<Node> getBestPath() {
-        if (!_bestPath.isEmpty() && !_bestPath.containsAll(_nodes)) {
-            _bestPath.clear();
-            _bestPathLength = 0;
-        }
-        return new ArrayList<Node>(_bestPath);
+        return _bestTour.get().getPath();
     }
 
     public long getBestPathLength() {
-        return _bestPathLength;
+        return _bestTour.get().getLength();
+    }
+
+    /**
+     * Returns a read-only view of all nodes in the graph, ordered by id.
+     */
+    public List<Node> getNodes() {
+        return Collections.unmodifiableList(_nodes);
     }
 
     /**
-     * Returns the list of all nodes in the graph.
+     * Returns the node with the specified id.
      */
-    public Set<Node> getNodes() {
-        return new HashSet<Node>(_nodes);
+    public Node getNode(int id) {
+        return _nodes.get(id);
     }
 
     public int getNodeCount() {
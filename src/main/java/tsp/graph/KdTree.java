@@ -0,0 +1,276 @@
+package tsp.graph;
+
+import java.util.Arrays;
+
+/**
+ * Static 2-d tree over a snapshot of node coordinates, used to answer nearest neighbour
+ * queries in O(log n) rather than scanning every node. The tree is stored implicitly:
+ * the node at the median of each [lo, hi) range of the id array is the root of that
+ * range, and the split axis alternates between x and y with each level.
+ *
+ * Nodes may be removed from (and later restored to) the tree, which lets tour construction
+ * heuristics repeatedly ask for the nearest node that has not been visited yet.
+ */
+public class KdTree {
+
+    private double[] _xCoords;
+    private double[] _yCoords;
+    private int _count;
+
+    private int[] _ids;
+    private int[] _position;
+    private int[] _subtreeSize;
+    private int[] _liveCount;
+    private boolean[] _removed;
+
+    // Search state
+    private double _queryX;
+    private double _queryY;
+    private int _excludeId;
+    private int _bestId;
+    private double _bestDistance;
+    private int[] _heapIds;
+    private double[] _heapDistances;
+    private int _heapSize;
+
+    public KdTree(double[] xCoords, double[] yCoords, int count) {
+        _xCoords = Arrays.copyOf(xCoords, count);
+        _yCoords = Arrays.copyOf(yCoords, count);
+        _count = count;
+
+        _ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            _ids[i] = i;
+        }
+        _subtreeSize = new int[count];
+        build(0, count, 0);
+
+        _position = new int[count];
+        for (int i = 0; i < count; i++) {
+            _position[_ids[i]] = i;
+        }
+        _liveCount = Arrays.copyOf(_subtreeSize, count);
+        _removed = new boolean[count];
+    }
+
+    public int size() {
+        return _count;
+    }
+
+    /**
+     * Removes the node from the set of nodes returned by nearest().
+     */
+    public void remove(int id) {
+        if (_removed[id]) return;
+        _removed[id] = true;
+
+        int position = _position[id];
+        int lo = 0;
+        int hi = _count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            _liveCount[mid]--;
+            if (position == mid) break;
+            if (position < mid) {
+                hi = mid;
+            }
+            else {
+                lo = mid + 1;
+            }
+        }
+    }
+
+    /**
+     * Restores all previously removed nodes.
+     */
+    public void restore() {
+        Arrays.fill(_removed, false);
+        System.arraycopy(_subtreeSize, 0, _liveCount, 0, _count);
+    }
+
+    public boolean isRemoved(int id) {
+        return _removed[id];
+    }
+
+    /**
+     * Returns the id of the (not removed) node closest to the specified coordinates,
+     * or -1 if every node has been removed.
+     */
+    public int nearest(double xPos, double yPos) {
+        _queryX = xPos;
+        _queryY = yPos;
+        _excludeId = -1;
+        _bestId = -1;
+        _bestDistance = Double.MAX_VALUE;
+        searchNearest(0, _count, 0);
+        return _bestId;
+    }
+
+    /**
+     * Returns the ids of the (up to) k nodes closest to the specified node, ordered
+     * from nearest to furthest. The node itself and removed nodes are excluded.
+     */
+    public int[] nearestNeighbors(int id, int k) {
+        k = Math.min(k, _count - 1);
+        if (k <= 0) return new int[0];
+
+        _queryX = _xCoords[id];
+        _queryY = _yCoords[id];
+        _excludeId = id;
+        if (_heapIds == null || _heapIds.length < k) {
+            _heapIds = new int[k];
+            _heapDistances = new double[k];
+        }
+        _heapSize = 0;
+        searchNearest(0, _count, 0, k);
+
+        // Pop the max-heap from the back so the result is sorted nearest first
+        int[] result = new int[_heapSize];
+        for (int i = _heapSize - 1; i >= 0; i--) {
+            result[i] = _heapIds[0];
+            _heapSize--;
+            _heapIds[0] = _heapIds[_heapSize];
+            _heapDistances[0] = _heapDistances[_heapSize];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    private void build(int lo, int hi, int depth) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, depth & 1);
+        _subtreeSize[mid] = hi - lo;
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    /**
+     * Partially sorts _ids[lo..hi] so that the element at index k is the one that would be there
+     * if the range were sorted along the given axis (quickselect).
+     */
+    private void select(int lo, int hi, int k, int axis) {
+        while (hi > lo) {
+            double pivot = coordinate(_ids[(lo + hi) >>> 1], axis);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coordinate(_ids[i], axis) < pivot) i++;
+                while (coordinate(_ids[j], axis) > pivot) j--;
+                if (i <= j) {
+                    int tmp = _ids[i];
+                    _ids[i] = _ids[j];
+                    _ids[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            }
+            else if (k >= i) {
+                lo = i;
+            }
+            else {
+                return;
+            }
+        }
+    }
+
+    private double coordinate(int id, int axis) {
+        return (axis == 0) ? _xCoords[id] : _yCoords[id];
+    }
+
+    private double squaredDistance(int id) {
+        double dx = _xCoords[id] - _queryX;
+        double dy = _yCoords[id] - _queryY;
+        return dx * dx + dy * dy;
+    }
+
+    private void searchNearest(int lo, int hi, int depth) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        if (_liveCount[mid] == 0) return;
+
+        int id = _ids[mid];
+        if (!_removed[id] && id != _excludeId) {
+            double distance = squaredDistance(id);
+            if (distance < _bestDistance) {
+                _bestDistance = distance;
+                _bestId = id;
+            }
+        }
+
+        double diff = ((depth & 1) == 0) ? _queryX - _xCoords[id] : _queryY - _yCoords[id];
+        if (diff < 0) {
+            searchNearest(lo, mid, depth + 1);
+            if (diff * diff < _bestDistance) searchNearest(mid + 1, hi, depth + 1);
+        }
+        else {
+            searchNearest(mid + 1, hi, depth + 1);
+            if (diff * diff < _bestDistance) searchNearest(lo, mid, depth + 1);
+        }
+    }
+
+    private void searchNearest(int lo, int hi, int depth, int k) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        if (_liveCount[mid] == 0) return;
+
+        int id = _ids[mid];
+        if (!_removed[id] && id != _excludeId) {
+            double distance = squaredDistance(id);
+            if (_heapSize < k) {
+                _heapIds[_heapSize] = id;
+                _heapDistances[_heapSize] = distance;
+                siftUp(_heapSize++);
+            }
+            else if (distance < _heapDistances[0]) {
+                _heapIds[0] = id;
+                _heapDistances[0] = distance;
+                siftDown(0);
+            }
+        }
+
+        double diff = ((depth & 1) == 0) ? _queryX - _xCoords[id] : _queryY - _yCoords[id];
+        int nearLo = (diff < 0) ? lo : mid + 1;
+        int nearHi = (diff < 0) ? mid : hi;
+        int farLo = (diff < 0) ? mid + 1 : lo;
+        int farHi = (diff < 0) ? hi : mid;
+        searchNearest(nearLo, nearHi, depth + 1, k);
+        if (_heapSize < k || diff * diff < _heapDistances[0]) {
+            searchNearest(farLo, farHi, depth + 1, k);
+        }
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (_heapDistances[parent] >= _heapDistances[index]) break;
+            swapHeap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < _heapSize && _heapDistances[left] > _heapDistances[largest]) largest = left;
+            if (right < _heapSize && _heapDistances[right] > _heapDistances[largest]) largest = right;
+            if (largest == index) break;
+            swapHeap(index, largest);
+            index = largest;
+        }
+    }
+
+    private void swapHeap(int i, int j) {
+        int id = _heapIds[i];
+        _heapIds[i] = _heapIds[j];
+        _heapIds[j] = id;
+        double distance = _heapDistances[i];
+        _heapDistances[i] = _heapDistances[j];
+        _heapDistances[j] = distance;
+    }
+}
@@ -0,0 +1,35 @@
+package tsp.graph;
+
+/**
+ * Candidate lists holding the k nearest neighbours of every node, ordered from nearest to
+ * furthest. Stored as one flat array of k entries per node id.
+ */
+public class NeighborLists {
+
+    private int _size;
+    private int[] _neighbors;
+
+    NeighborLists(KdTree spatialIndex, int k) {
+        int nodeCount = spatialIndex.size();
+        _size = Math.max(0, Math.min(k, nodeCount - 1));
+        _neighbors = new int[nodeCount * _size];
+        for (int id = 0; id < nodeCount; id++) {
+            int[] nearest = spatialIndex.nearestNeighbors(id, _size);
+            System.arraycopy(nearest, 0, _neighbors, id * _size, _size);
+        }
+    }
+
+    /**
+     * Returns the number of neighbours stored for each node.
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Returns the index'th nearest neighbour of the node.
+     */
+    public int get(int node, int index) {
+        return _neighbors[node * _size + index];
+    }
+}
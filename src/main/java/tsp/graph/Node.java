@@ -1,50 +1,49 @@
 package tsp.graph;
 
-import java.awt.geom.Point2D;
-import java.util.HashMap;
-import java.util.Map;
-
 public class Node {
 
-    private int _xPos = 0;
-    private int _yPos = 0;
-
-    private Map<Node, Edge> _edges = new HashMap<Node, Edge>();
+    private int _id = 0;
+    private double _x = 0;
+    private double _y = 0;
 
-    public Node(int xPos, int yPos) {
-        _xPos = xPos;
-        _yPos = yPos;
+    public Node(int id, double x, double y) {
+        _id = id;
+        _x = x;
+        _y = y;
     }
 
-    public int xPos() {
-        return _xPos;
+    /**
+     * Returns the dense index of this node inside its graph (0 .. nodeCount - 1).
+     */
+    public int getId() {
+        return _id;
     }
 
-    public int yPos() {
-        return _yPos;
+    public double getX() {
+        return _x;
     }
 
-    public long distance(Node other) {
-        return (long) Math.round(Point2D.distance(this._xPos, this._yPos, other._xPos, other._yPos));
+    public double getY() {
+        return _y;
     }
 
-    public void addEdge(Node other) {
-        Edge edge = new Edge(this, other);
-        this._edges.put(other, edge);
-        other._edges.put(this, edge);
+    /**
+     * Returns the x coordinate rounded to the nearest integer (for display).
+     */
+    public int xPos() {
+        return (int) Math.round(_x);
     }
 
-    public Edge getEdge(Node other) {
-        return _edges.get(other);
+    /**
+     * Returns the y coordinate rounded to the nearest integer (for display).
+     */
+    public int yPos() {
+        return (int) Math.round(_y);
     }
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + _xPos;
-        result = prime * result + _yPos;
-        return result;
+        return _id;
     }
 
     @Override
@@ -58,11 +57,16 @@ public class Node {
         if (getClass() != obj.getClass()) {
             return false;
         }
+        // Ids are unique within a graph; coordinates are compared as well so nodes
+        // left over from before the graph was cleared never match the new nodes
         Node other = (Node) obj;
-        if (_xPos != other._xPos) {
+        if (_id != other._id) {
+            return false;
+        }
+        if (Double.compare(_x, other._x) != 0) {
             return false;
         }
-        if (_yPos != other._yPos) {
+        if (Double.compare(_y, other._y) != 0) {
             return false;
         }
         return true;
@@ -70,6 +74,6 @@ public class Node {
 
     @Override
     public String toString() {
-        return "Node [_xPos=" + _xPos + ", _yPos=" + _yPos + "]";
+        return "Node [_id=" + _id + ", _x=" + _x + ", _y=" + _y + "]";
     }
 }
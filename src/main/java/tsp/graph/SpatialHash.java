@@ -0,0 +1,106 @@
+package tsp.graph;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over node coordinates, used to find nodes near a point without scanning
+ * the whole graph. Cells are kept in an open-addressing table keyed by cell coordinates
+ * and the nodes inside a cell are chained through a per-id 'next' array, so adding a
+ * node does not allocate anything beyond occasional array growth.
+ */
+class SpatialHash {
+
+    private DistanceMatrix _coordinates;
+    private int _cellSize;
+
+    private long[] _cellKeys;
+    private int[] _cellHeads;
+    private int _cellCount;
+    private int[] _next = new int[16];
+
+    SpatialHash(DistanceMatrix coordinates, int cellSize) {
+        _coordinates = coordinates;
+        _cellSize = cellSize;
+        clear();
+    }
+
+    void clear() {
+        _cellKeys = new long[64];
+        _cellHeads = new int[64];
+        Arrays.fill(_cellHeads, -1);
+        _cellCount = 0;
+    }
+
+    void add(int id) {
+        if (id >= _next.length) {
+            _next = Arrays.copyOf(_next, Math.max(id + 1, _next.length * 2));
+        }
+        if ((_cellCount + 1) * 2 > _cellKeys.length) {
+            rehash(_cellKeys.length * 2);
+        }
+
+        long key = cellKey(cell(_coordinates.xPos(id)), cell(_coordinates.yPos(id)));
+        int slot = findSlot(_cellKeys, _cellHeads, key);
+        if (_cellHeads[slot] == -1) {
+            _cellKeys[slot] = key;
+            _cellCount++;
+        }
+        _next[id] = _cellHeads[slot];
+        _cellHeads[slot] = id;
+    }
+
+    /**
+     * Returns true if any node lies closer than the specified (rounded) distance to the point.
+     * The distance must not be larger than the cell size.
+     */
+    boolean containsCloserThan(double xPos, double yPos, int distance) {
+        int cellX = cell(xPos);
+        int cellY = cell(yPos);
+        for (int cx = cellX - 1; cx <= cellX + 1; cx++) {
+            for (int cy = cellY - 1; cy <= cellY + 1; cy++) {
+                int slot = findSlot(_cellKeys, _cellHeads, cellKey(cx, cy));
+                for (int id = _cellHeads[slot]; id != -1; id = _next[id]) {
+                    double dx = _coordinates.xPos(id) - xPos;
+                    double dy = _coordinates.yPos(id) - yPos;
+                    if (dx * dx + dy * dy < (distance - 0.5) * (distance - 0.5)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / _cellSize);
+    }
+
+    private static long cellKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the slot holding the key, or the empty slot where it would be inserted.
+     */
+    private static int findSlot(long[] keys, int[] heads, long key) {
+        int mask = keys.length - 1;
+        int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (heads[slot] != -1 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] keys = new long[capacity];
+        int[] heads = new int[capacity];
+        Arrays.fill(heads, -1);
+        for (int i = 0; i < _cellKeys.length; i++) {
+            if (_cellHeads[i] != -1) {
+                int slot = findSlot(keys, heads, _cellKeys[i]);
+                keys[slot] = _cellKeys[i];
+                heads[slot] = _cellHeads[i];
+            }
+        }
+        _cellKeys = keys;
+        _cellHeads = heads;
+    }
+}
@@ -0,0 +1,39 @@
+package tsp.graph;
+
+/**
+ * Index arithmetic for flat lower-triangular arrays holding one value per pair of nodes
+ * (i, j) with i != j, such as the distance cache and the pheromone matrix.
+ */
+public final class TriangularArrays {
+
+    // Largest array length the JVM reliably allocates
+    private static final long MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private TriangularArrays() {
+    }
+
+    /**
+     * Returns the offset of the (i, j) pair inside a flat lower-triangular array.
+     */
+    public static int index(int i, int j) {
+        if (i < j) {
+            int tmp = i;
+            i = j;
+            j = tmp;
+        }
+        return (int) (((long) i * (i - 1) >>> 1) + j);
+    }
+
+    /**
+     * Returns the length of a lower-triangular array holding every pair of the given number of nodes.
+     *
+     * @throws IllegalArgumentException if there are too many nodes for the pairs to fit in an array
+     */
+    public static int size(int count) {
+        long size = (long) count * (count - 1) >>> 1;
+        if (size > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException("Too many nodes for a table of every pair: " + count);
+        }
+        return (int) size;
+    }
+}
@@ -0,0 +1,80 @@
+package tsp.gui;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Off-screen raster for drawing large numbers of weighted edges (such as pheromone trails). Lines are
+ * clipped and written straight into the pixel array with Bresenham's algorithm, coloured from a fixed lookup table
+ * of shades of blue; where lines cross the strongest one wins.
+ */
+public class HeatmapRaster {
+
+    private static final int LEVELS = 256;
+    private static final int[] COLORS = new int[LEVELS];
+
+    static {
+        for (int level = 0; level < LEVELS; level++) {
+            COLORS[level] = 0xFF000000 | level;
+        }
+    }
+
+    private BufferedImage _image = null;
+    private int[] _pixels;
+    private byte[] _levels;
+    private int _width;
+    private int _height;
+    private double[] _line = new double[4];
+    private int _level;
+    private LineRasterizer.PixelSink _blend = this::blend;
+
+    /**
+     * Clears the raster, resizing it first if necessary.
+     */
+    public void reset(int width, int height) {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+        if (_image == null || _width != width || _height != height) {
+            _width = width;
+            _height = height;
+            _image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            _pixels = ((DataBufferInt) _image.getRaster().getDataBuffer()).getData();
+            _levels = new byte[width * height];
+        }
+        else {
+            Arrays.fill(_pixels, 0);
+            Arrays.fill(_levels, (byte) 0);
+        }
+    }
+
+    /**
+     * Draws a line (in pixel coordinates) with the specified weight (clamped to the range 0 to 1).
+     * The line is clipped to the raster first.
+     */
+    public void drawLine(double x1, double y1, double x2, double y2, double weight) {
+        int level = (int) (Math.min(1.0, Math.max(0.0, weight)) * (LEVELS - 1));
+        if (level == 0) return;
+
+        _line[0] = x1;
+        _line[1] = y1;
+        _line[2] = x2;
+        _line[3] = y2;
+        _level = level;
+        LineRasterizer.rasterize(_line, _width, _height, _blend);
+    }
+
+    /**
+     * Colours the pixel with the current line's level unless a stronger line already covers it.
+     */
+    private void blend(int index) {
+        if ((_levels[index] & 0xFF) < _level) {
+            _levels[index] = (byte) _level;
+            _pixels[index] = COLORS[_level];
+        }
+    }
+
+    public BufferedImage getImage() {
+        return _image;
+    }
+}
@@ -0,0 +1,31 @@
+package tsp.gui;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of int indexes, reused between queries to avoid boxing and reallocation.
+ */
+class IndexList {
+
+    private int[] _items = new int[64];
+    private int _size = 0;
+
+    void add(int index) {
+        if (_size == _items.length) {
+            _items = Arrays.copyOf(_items, _size * 2);
+        }
+        _items[_size++] = index;
+    }
+
+    int get(int position) {
+        return _items[position];
+    }
+
+    int size() {
+        return _size;
+    }
+
+    void clear() {
+        _size = 0;
+    }
+}
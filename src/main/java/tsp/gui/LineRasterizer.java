@@ -0,0 +1,87 @@
+package tsp.gui;
+
+/**
+ * Rasterizes lines into a pixel array: each line is clipped to the array (Liang-Barsky), so no time
+ * is spent stepping through the parts that lie off screen, and then walked pixel by pixel with
+ * Bresenham's algorithm.
+ */
+final class LineRasterizer {
+
+    /**
+     * Receives the pixels covered by a line, as offsets into the pixel array (y * width + x).
+     */
+    interface PixelSink {
+        void plot(int index);
+    }
+
+    private LineRasterizer() {
+    }
+
+    /**
+     * Passes every pixel of the line held in the array as x1, y1, x2, y2 that lies inside a pixel
+     * array of the specified size to the sink. The array is used as scratch space.
+     */
+    static void rasterize(double[] line, int width, int height, PixelSink sink) {
+        if (!clip(line, 0, 0, width - 1, height - 1)) return;
+
+        int x = (int) line[0];
+        int y = (int) line[1];
+        int x2 = (int) line[2];
+        int y2 = (int) line[3];
+        int dx = Math.abs(x2 - x);
+        int dy = -Math.abs(y2 - y);
+        int stepX = (x < x2) ? 1 : -1;
+        int stepY = (y < y2) ? 1 : -1;
+        int error = dx + dy;
+        while (true) {
+            sink.plot(y * width + x);
+            if (x == x2 && y == y2) break;
+
+            int error2 = error * 2;
+            if (error2 >= dy) {
+                error += dy;
+                x += stepX;
+            }
+            if (error2 <= dx) {
+                error += dx;
+                y += stepY;
+            }
+        }
+    }
+
+    /**
+     * Clips the line held in the array as x1, y1, x2, y2 to the rectangle, in place. Returns false
+     * (leaving the array undefined) if no part of the line lies inside the rectangle.
+     */
+    private static boolean clip(double[] line, double minX, double minY, double maxX, double maxY) {
+        double x1 = line[0];
+        double y1 = line[1];
+        double dx = line[2] - x1;
+        double dy = line[3] - y1;
+        double[] p = { -dx, dx, -dy, dy };
+        double[] q = { x1 - minX, maxX - x1, y1 - minY, maxY - y1 };
+        double t0 = 0;
+        double t1 = 1;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] < 0) return false;
+            }
+            else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) {
+                    if (t > t1) return false;
+                    t0 = Math.max(t0, t);
+                }
+                else {
+                    if (t < t0) return false;
+                    t1 = Math.min(t1, t);
+                }
+            }
+        }
+        line[0] = x1 + t0 * dx;
+        line[1] = y1 + t0 * dy;
+        line[2] = x1 + t1 * dx;
+        line[3] = y1 + t1 * dy;
+        return true;
+    }
+}
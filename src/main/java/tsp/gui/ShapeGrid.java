@@ -0,0 +1,166 @@
+package tsp.gui;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the shapes of a batch (lines stored as x1, y1, x2, y2 and points stored as
+ * x, y, radius), used to find the shapes overlapping the visible area without testing them all.
+ * Each shape no larger than a cell is bucketed by its centre; larger shapes are kept in a
+ * separate list that is tested on every query.
+ */
+class ShapeGrid {
+
+    // Average number of shapes per cell the grid is sized for
+    private static final int SHAPES_PER_CELL = 4;
+
+    private float[] _coords;
+    private int _stride;
+    private boolean _lines;
+
+    private double _minX;
+    private double _minY;
+    private double _maxX;
+    private double _maxY;
+    private double _cellSize;
+    private int _columns;
+    private int _rows;
+    private int[] _cellStarts;
+    private int[] _cellItems;
+    private int[] _oversized;
+    private int _oversizedCount = 0;
+
+    /**
+     * Builds the grid over the first count shapes of the coordinate array.
+     */
+    ShapeGrid(float[] coords, int count, boolean lines) {
+        _coords = coords;
+        _lines = lines;
+        _stride = (lines) ? 4 : 3;
+
+        _minX = Double.POSITIVE_INFINITY;
+        _minY = Double.POSITIVE_INFINITY;
+        _maxX = Double.NEGATIVE_INFINITY;
+        _maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            _minX = Math.min(_minX, minX(i));
+            _minY = Math.min(_minY, minY(i));
+            _maxX = Math.max(_maxX, maxX(i));
+            _maxY = Math.max(_maxY, maxY(i));
+        }
+
+        double width = Math.max(1e-3, _maxX - _minX);
+        double height = Math.max(1e-3, _maxY - _minY);
+        int cellCount = Math.max(1, count / SHAPES_PER_CELL);
+        _cellSize = Math.max(Math.sqrt(width * height / cellCount), Math.max(width, height) / cellCount);
+        _columns = (int) (width / _cellSize) + 1;
+        _rows = (int) (height / _cellSize) + 1;
+
+        // Counting sort of the shapes into their cells
+        int[] cells = new int[count];
+        _cellStarts = new int[_columns * _rows + 1];
+        _oversized = new int[16];
+        for (int i = 0; i < count; i++) {
+            if (maxX(i) - minX(i) > _cellSize || maxY(i) - minY(i) > _cellSize) {
+                cells[i] = -1;
+                if (_oversizedCount == _oversized.length) {
+                    _oversized = Arrays.copyOf(_oversized, _oversizedCount * 2);
+                }
+                _oversized[_oversizedCount++] = i;
+                continue;
+            }
+            int column = column((minX(i) + maxX(i)) / 2);
+            int row = row((minY(i) + maxY(i)) / 2);
+            cells[i] = row * _columns + column;
+            _cellStarts[cells[i] + 1]++;
+        }
+        for (int cell = 0; cell < _columns * _rows; cell++) {
+            _cellStarts[cell + 1] += _cellStarts[cell];
+        }
+        _cellItems = new int[_cellStarts[_columns * _rows]];
+        int[] next = Arrays.copyOf(_cellStarts, _columns * _rows);
+        for (int i = 0; i < count; i++) {
+            if (cells[i] >= 0) {
+                _cellItems[next[cells[i]]++] = i;
+            }
+        }
+    }
+
+    double getMinX() {
+        return _minX;
+    }
+
+    double getMinY() {
+        return _minY;
+    }
+
+    double getMaxX() {
+        return _maxX;
+    }
+
+    double getMaxY() {
+        return _maxY;
+    }
+
+    /**
+     * Adds the indexes of the shapes whose bounding boxes overlap the rectangle to the list.
+     */
+    void query(double minX, double minY, double maxX, double maxY, IndexList result) {
+        if (maxX < _minX || maxY < _minY || minX > _maxX || minY > _maxY) return;
+
+        // A bucketed shape reaches at most half a cell beyond the cell holding its centre
+        double margin = _cellSize / 2;
+        int firstColumn = column(minX - margin);
+        int lastColumn = column(maxX + margin);
+        int firstRow = row(minY - margin);
+        int lastRow = row(maxY + margin);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * _columns + column;
+                for (int k = _cellStarts[cell]; k < _cellStarts[cell + 1]; k++) {
+                    int i = _cellItems[k];
+                    if (overlaps(i, minX, minY, maxX, maxY)) {
+                        result.add(i);
+                    }
+                }
+            }
+        }
+        for (int k = 0; k < _oversizedCount; k++) {
+            int i = _oversized[k];
+            if (overlaps(i, minX, minY, maxX, maxY)) {
+                result.add(i);
+            }
+        }
+    }
+
+    private boolean overlaps(int i, double minX, double minY, double maxX, double maxY) {
+        return maxX(i) >= minX && minX(i) <= maxX && maxY(i) >= minY && minY(i) <= maxY;
+    }
+
+    private int column(double x) {
+        return Math.max(0, Math.min(_columns - 1, (int) ((x - _minX) / _cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(_rows - 1, (int) ((y - _minY) / _cellSize)));
+    }
+
+    private float minX(int i) {
+        int offset = i * _stride;
+        return (_lines) ? Math.min(_coords[offset], _coords[offset + 2]) : _coords[offset];
+    }
+
+    private float maxX(int i) {
+        int offset = i * _stride;
+        return (_lines) ? Math.max(_coords[offset], _coords[offset + 2]) : _coords[offset];
+    }
+
+    private float minY(int i) {
+        int offset = i * _stride;
+        return (_lines) ? Math.min(_coords[offset + 1], _coords[offset + 3]) : _coords[offset + 1];
+    }
+
+    private float maxY(int i) {
+        int offset = i * _stride;
+        return (_lines) ? Math.max(_coords[offset + 1], _coords[offset + 3]) : _coords[offset + 1];
+    }
+}
@@ -1,56 +1,454 @@
 package tsp.gui;
 
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.swing.*;
 
+/**
+ * Retained-mode drawing surface. Shapes are drawn into layers (painted in the order of the Layer
+ * enum) where they are batched per colour as primitive coordinate arrays; a layer can also show
+ * a pre-rendered image underneath its shapes. Each layer is rendered into its own cached image,
+ * which is only re-rendered after the layer has been redrawn, the pane resized or the view moved,
+ * so repainting an unchanged scene just copies the cached images.
+ *
+ * Shapes are given in world coordinates and shown through a view that can be zoomed with the
+ * mouse wheel and panned by dragging. Rendering only visits the shapes inside the view (found
+ * through a grid over each batch), and a layer with more than LOD_SHAPE_LIMIT visible shapes is
+ * drawn as single pixels straight into its image, so everything falling on the same pixel costs
+ * a single write.
+ */
 public class TSPDrawPane extends JPanel {
 
     private static final long serialVersionUID = 1356708741246858622L;
-    private Map<Object, Color> _objectMap = new LinkedHashMap<Object, Color>();
+
+    // Visible shapes above which a layer is drawn with single pixel lines and points instead of antialiased shapes
+    private static final int LOD_SHAPE_LIMIT = 20000;
+    private static final double ZOOM_STEP = 1.25;
+    private static final double MIN_SCALE = 1e-4;
+    private static final double MAX_SCALE = 1e4;
+    private static final int FIT_PADDING = 15;
+
+    public static enum Layer {
+        GREEDY_PATH,
+        BACKGROUND_DATA,
+        BEST_PATH,
+        NODES,
+        HIGHLIGHTS
+    }
+
+    /**
+     * Lines (x1, y1, x2, y2) and circles (x, y, radius) of a single colour. The shapes are rendered
+     * one by one through a reused shape object: with antialiasing on, Java2D rasterizes many small
+     * shapes much faster than one path holding all of them. The grids used to find the visible
+     * shapes are built the first time the batch is rendered.
+     */
+    private static class Batch {
+        private float[] _lines = new float[64];
+        private int _lineCount = 0;
+        private float[] _circles = new float[48];
+        private int _circleCount = 0;
+        private float _maxRadius = 0;
+        private ShapeGrid _lineGrid = null;
+        private ShapeGrid _circleGrid = null;
+        private IndexList _visibleLines = new IndexList();
+        private IndexList _visibleCircles = new IndexList();
+    }
+
+    private static class LayerData {
+        private Map<Color, Batch> _batches = new LinkedHashMap<Color, Batch>();
+        private BufferedImage _raster = null;
+        private Object _key = null;
+        private BufferedImage _image = null;
+        private int[] _pixels = null;
+        private boolean _dirty = false;
+    }
+
+    private Map<Layer, LayerData> _layers = new EnumMap<Layer, LayerData>(Layer.class);
+
+    // Screen coordinates are world coordinates * _scale + offset
+    private double _scale = 1.0;
+    private double _offsetX = 0;
+    private double _offsetY = 0;
+    private Point _dragPoint = null;
 
     TSPDrawPane() {
         super(true);
+        for (Layer layer : Layer.values()) {
+            _layers.put(layer, new LayerData());
+        }
+
+        MouseAdapter viewControl = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                // Ctrl-click is used to add nodes, so it never starts a drag
+                _dragPoint = (e.isControlDown()) ? null : e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (_dragPoint != null) {
+                    panView(e.getX() - _dragPoint.x, e.getY() - _dragPoint.y);
+                    _dragPoint = e.getPoint();
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                _dragPoint = null;
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoomView(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+            }
+        };
+        addMouseListener(viewControl);
+        addMouseMotionListener(viewControl);
+        addMouseWheelListener(viewControl);
+    }
+
+    /**
+     * Starts redrawing a layer to show the content identified by the key. Returns false (and keeps the
+     * layer as it is) if the layer already shows that content, compared by identity; a null key always
+     * clears the layer and returns true. Shapes drawn afterwards replace the previous contents.
+     */
+    public synchronized boolean beginLayer(Layer layer, Object key) {
+        LayerData data = _layers.get(layer);
+        if (key != null && key == data._key) return false;
+
+        data._batches.clear();
+        data._raster = null;
+        data._key = key;
+        data._dirty = true;
+        return true;
+    }
+
+    /**
+     * Removes everything from a layer.
+     */
+    public synchronized void clearLayer(Layer layer) {
+        LayerData data = _layers.get(layer);
+        data._key = null;
+        if (!isEmpty(data)) {
+            data._batches.clear();
+            data._raster = null;
+            data._dirty = true;
+        }
+    }
+
+    /**
+     * Shows the image (drawn at the top-left corner of the pane, in screen coordinates) underneath the
+     * shapes of the layer. The image is copied when the layer is next rendered, so it must not change until then.
+     */
+    public synchronized void drawImage(Layer layer, BufferedImage image) {
+        LayerData data = _layers.get(layer);
+        data._raster = image;
+        data._dirty = true;
+    }
+
+    /**
+     * Draws a filled circle centred on a point in world coordinates, with its radius given in pixels.
+     */
+    public synchronized void drawCircle(Layer layer, double xPos, double yPos, int radius, Color color) {
+        Batch batch = getBatch(layer, color);
+        int offset = batch._circleCount * 3;
+        if (offset + 3 > batch._circles.length) {
+            batch._circles = Arrays.copyOf(batch._circles, batch._circles.length * 2);
+        }
+        batch._circles[offset] = (float) xPos;
+        batch._circles[offset + 1] = (float) yPos;
+        batch._circles[offset + 2] = radius;
+        batch._circleCount++;
+        batch._maxRadius = Math.max(batch._maxRadius, radius);
+        batch._circleGrid = null;
+    }
+
+    /**
+     * Draws a line between two points in world coordinates.
+     */
+    public synchronized void drawLine(Layer layer, double x1, double y1, double x2, double y2, Color color) {
+        Batch batch = getBatch(layer, color);
+        int offset = batch._lineCount * 4;
+        if (offset + 4 > batch._lines.length) {
+            batch._lines = Arrays.copyOf(batch._lines, batch._lines.length * 2);
+        }
+        batch._lines[offset] = (float) x1;
+        batch._lines[offset + 1] = (float) y1;
+        batch._lines[offset + 2] = (float) x2;
+        batch._lines[offset + 3] = (float) y2;
+        batch._lineCount++;
+        batch._lineGrid = null;
+    }
+
+    private static boolean isEmpty(LayerData data) {
+        return data._batches.isEmpty() && data._raster == null;
+    }
+
+    private Batch getBatch(Layer layer, Color color) {
+        LayerData data = _layers.get(layer);
+        Batch batch = data._batches.get(color);
+        if (batch == null) {
+            batch = new Batch();
+            data._batches.put(color, batch);
+        }
+        data._dirty = true;
+        return batch;
+    }
+
+    // **********************************************************
+    // View (zoom and pan) handling
+    // **********************************************************
+
+    public synchronized double toScreenX(double x) {
+        return x * _scale + _offsetX;
+    }
+
+    public synchronized double toScreenY(double y) {
+        return y * _scale + _offsetY;
+    }
+
+    public synchronized double toWorldX(double screenX) {
+        return (screenX - _offsetX) / _scale;
+    }
+
+    public synchronized double toWorldY(double screenY) {
+        return (screenY - _offsetY) / _scale;
+    }
+
+    /**
+     * Resets the view so world coordinates match screen coordinates again.
+     */
+    public synchronized void resetView() {
+        setView(1.0, 0, 0);
+    }
+
+    /**
+     * Zooms and pans the view so the contents of every layer fit inside the pane.
+     */
+    public synchronized void fitToView() {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (LayerData data : _layers.values()) {
+            for (Batch batch : data._batches.values()) {
+                for (ShapeGrid grid : getGrids(batch)) {
+                    minX = Math.min(minX, grid.getMinX());
+                    minY = Math.min(minY, grid.getMinY());
+                    maxX = Math.max(maxX, grid.getMaxX());
+                    maxY = Math.max(maxY, grid.getMaxY());
+                }
+            }
+        }
+        if (minX > maxX) {
+            resetView();
+            return;
+        }
+        fitToView(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Zooms and pans the view so the specified area (in world coordinates) fits inside the pane.
+     */
+    public synchronized void fitToView(double minX, double minY, double maxX, double maxY) {
+        double width = Math.max(1e-3, maxX - minX);
+        double height = Math.max(1e-3, maxY - minY);
+        double scale = Math.min((getWidth() - FIT_PADDING * 2) / width, (getHeight() - FIT_PADDING * 2) / height);
+        scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+        setView(scale, (getWidth() - width * scale) / 2 - minX * scale, (getHeight() - height * scale) / 2 - minY * scale);
     }
 
-    public synchronized void clearBuffer() {
-        _objectMap.clear();
+    private synchronized void panView(int dx, int dy) {
+        setView(_scale, _offsetX + dx, _offsetY + dy);
     }
 
-    public synchronized void drawCircle(int xPos, int yPos, int radius, Color color) {
-        Ellipse2D.Float circle = new Ellipse2D.Float(xPos - radius, yPos - radius, radius * 2, radius * 2);
-        _objectMap.remove(circle);
-        _objectMap.put(circle, color);
+    /**
+     * Zooms the view by the factor, keeping the world point under the screen point in place.
+     */
+    private synchronized void zoomView(double factor, int screenX, int screenY) {
+        double scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, _scale * factor));
+        double worldX = toWorldX(screenX);
+        double worldY = toWorldY(screenY);
+        setView(scale, screenX - worldX * scale, screenY - worldY * scale);
     }
 
-    public synchronized void drawLine(int x1, int y1, int x2, int y2, Color color) {
-        Line2D.Float line = new Line2D.Float(x1, y1, x2, y2);
-        _objectMap.remove(line);
-        _objectMap.put(line, color);
+    private void setView(double scale, double offsetX, double offsetY) {
+        _scale = scale;
+        _offsetX = offsetX;
+        _offsetY = offsetY;
+        for (LayerData data : _layers.values()) {
+            data._dirty = true;
+        }
+        repaint();
     }
 
+    private static List<ShapeGrid> getGrids(Batch batch) {
+        List<ShapeGrid> grids = new ArrayList<ShapeGrid>(2);
+        if (batch._lineCount > 0) {
+            if (batch._lineGrid == null) {
+                batch._lineGrid = new ShapeGrid(batch._lines, batch._lineCount, true);
+            }
+            grids.add(batch._lineGrid);
+        }
+        if (batch._circleCount > 0) {
+            if (batch._circleGrid == null) {
+                batch._circleGrid = new ShapeGrid(batch._circles, batch._circleCount, false);
+            }
+            grids.add(batch._circleGrid);
+        }
+        return grids;
+    }
+
+    // **********************************************************
+    // Rendering
+    // **********************************************************
+
     @Override
     public synchronized void paintComponent(Graphics comp) {
         //
         Graphics2D comp2D = (Graphics2D) comp;
-        comp2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
         // Clear background
         comp2D.setColor(getBackground());
         comp2D.fillRect(0, 0, getWidth(), getHeight());
 
-        for (Object object : _objectMap.keySet()) {
-            Color color = _objectMap.get(object);
-            comp2D.setColor(color);
-            if (object instanceof Line2D.Float) {
-                comp2D.draw((Line2D.Float) object);
+        if (getWidth() <= 0 || getHeight() <= 0) return;
+
+        for (LayerData data : _layers.values()) {
+            if (isEmpty(data)) continue;
+
+            if (data._image == null || data._image.getWidth() != getWidth() || data._image.getHeight() != getHeight()) {
+                data._image = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
+                data._pixels = ((DataBufferInt) data._image.getRaster().getDataBuffer()).getData();
+                data._dirty = true;
+            }
+            if (data._dirty) {
+                renderLayer(data);
+                data._dirty = false;
             }
-            else if (object instanceof Ellipse2D.Float) {
-                comp2D.fill((Ellipse2D.Float) object);
+            comp2D.drawImage(data._image, 0, 0, null);
+        }
+    }
+
+    /**
+     * Re-renders the cached image of a layer from its batches.
+     */
+    private void renderLayer(LayerData data) {
+        Arrays.fill(data._pixels, 0);
+        if (data._raster != null) {
+            Graphics2D layer2D = data._image.createGraphics();
+            layer2D.drawImage(data._raster, 0, 0, null);
+            layer2D.dispose();
+        }
+
+        // Find the shapes inside the view (circle radii are in pixels, so they widen the view by a radius)
+        int visibleCount = 0;
+        for (Batch batch : data._batches.values()) {
+            batch._visibleLines.clear();
+            batch._visibleCircles.clear();
+            double margin = (batch._maxRadius + 1) / _scale;
+            double minX = toWorldX(0) - margin;
+            double minY = toWorldY(0) - margin;
+            double maxX = toWorldX(getWidth()) + margin;
+            double maxY = toWorldY(getHeight()) + margin;
+            getGrids(batch);
+            if (batch._lineGrid != null) {
+                batch._lineGrid.query(minX, minY, maxX, maxY, batch._visibleLines);
+            }
+            if (batch._circleGrid != null) {
+                batch._circleGrid.query(minX, minY, maxX, maxY, batch._visibleCircles);
+            }
+            visibleCount += batch._visibleLines.size() + batch._visibleCircles.size();
+        }
+
+        if (visibleCount > LOD_SHAPE_LIMIT) {
+            renderPixels(data);
+        }
+        else {
+            renderShapes(data);
+        }
+    }
+
+    /**
+     * Draws the visible shapes of the layer as antialiased Java2D shapes.
+     */
+    private void renderShapes(LayerData data) {
+        Graphics2D layer2D = data._image.createGraphics();
+        try {
+            layer2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            Line2D.Double line = new Line2D.Double();
+            Ellipse2D.Double circle = new Ellipse2D.Double();
+            for (Map.Entry<Color, Batch> entry : data._batches.entrySet()) {
+                Batch batch = entry.getValue();
+                layer2D.setColor(entry.getKey());
+
+                float[] lines = batch._lines;
+                for (int k = 0; k < batch._visibleLines.size(); k++) {
+                    int i = batch._visibleLines.get(k) * 4;
+                    line.setLine(toScreenX(lines[i]), toScreenY(lines[i + 1]), toScreenX(lines[i + 2]), toScreenY(lines[i + 3]));
+                    layer2D.draw(line);
+                }
+
+                float[] circles = batch._circles;
+                for (int k = 0; k < batch._visibleCircles.size(); k++) {
+                    int i = batch._visibleCircles.get(k) * 3;
+                    float radius = circles[i + 2];
+                    circle.setFrame(toScreenX(circles[i]) - radius, toScreenY(circles[i + 1]) - radius, radius * 2, radius * 2);
+                    layer2D.fill(circle);
+                }
+            }
+        }
+        finally {
+            layer2D.dispose();
+        }
+    }
+
+    /**
+     * Draws the visible shapes of the layer straight into its pixels: lines one pixel wide (clipped to
+     * the pane) and circles as a single pixel, so dense regions cost no more than the pixels they cover.
+     */
+    private void renderPixels(LayerData data) {
+        int width = data._image.getWidth();
+        int height = data._image.getHeight();
+        int[] pixels = data._pixels;
+        double[] line = new double[4];
+        for (Map.Entry<Color, Batch> entry : data._batches.entrySet()) {
+            Batch batch = entry.getValue();
+            int color = entry.getKey().getRGB();
+            LineRasterizer.PixelSink sink = index -> pixels[index] = color;
+
+            float[] lines = batch._lines;
+            for (int k = 0; k < batch._visibleLines.size(); k++) {
+                int i = batch._visibleLines.get(k) * 4;
+                line[0] = toScreenX(lines[i]);
+                line[1] = toScreenY(lines[i + 1]);
+                line[2] = toScreenX(lines[i + 2]);
+                line[3] = toScreenY(lines[i + 3]);
+                LineRasterizer.rasterize(line, width, height, sink);
+            }
+
+            float[] circles = batch._circles;
+            for (int k = 0; k < batch._visibleCircles.size(); k++) {
+                int i = batch._visibleCircles.get(k) * 3;
+                int x = (int) toScreenX(circles[i]);
+                int y = (int) toScreenY(circles[i + 1]);
+                if (x >= 0 && x < width && y >= 0 && y < height) {
+                    pixels[y * width + x] = color;
+                }
             }
         }
     }
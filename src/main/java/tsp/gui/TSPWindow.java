@@ -9,8 +9,9 @@ import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Random;
+import java.util.List;
 import java.util.Set;
 
 import javax.swing.*;
@@ -24,7 +25,8 @@ public class TSPWindow extends JFrame implements MouseListener, KeyListener {
         RELEASE_ANTS,
         HILL_CLIMBING,
         TWO_OPT,
-        THREE_OPT
+        THREE_OPT,
+        LIN_KERNIGHAN
     }
 
     private JPanel _controlPane;
@@ -38,14 +40,19 @@ public class TSPWindow extends JFrame implements MouseListener, KeyListener {
     private JCheckBox _chkDisplayGreedyPath;
     private JCheckBox _chkDisplayBestPath;
     private JCheckBox _chkDisplayBackgroundData;
+    private JCheckBox _chkPolishWithOrOpt;
+    private JComboBox<Object> _cmbStartTour;
 
     private boolean _releaseAntsButtonClicked = false;
     private boolean _hillClimbingButtonClicked = false;
     private boolean _twoOptButtonClicked = false;
     private boolean _threeOptButtonClicked = false;
+    private boolean _linKernighanButtonClicked = false;
+    private boolean _orOptButtonClicked = false;
     private boolean _generateButtonClicked = false;
 
     private Set<Integer> _keysDown = new HashSet<Integer>();
+    private List<Point> _newNodePositions = new ArrayList<Point>();
 
     private TSPDrawPane _drawPane;
     private Graph _graph;
@@ -102,6 +109,14 @@ public class TSPWindow extends JFrame implements MouseListener, KeyListener {
         btnThreeOpt.addActionListener(actionEvent -> _threeOptButtonClicked = true);
         topLeftPane.add(btnThreeOpt);
 
+        JButton btnLinKernighan = new JButton("Lin-Kernighan");
+        btnLinKernighan.addActionListener(actionEvent -> _linKernighanButtonClicked = true);
+        topLeftPane.add(btnLinKernighan);
+
+        JButton btnOrOpt = new JButton("Or-opt");
+        btnOrOpt.addActionListener(actionEvent -> _orOptButtonClicked = true);
+        topLeftPane.add(btnOrOpt);
+
         //
         // Setup bottom left pane
         //
@@ -109,10 +124,17 @@ public class TSPWindow extends JFrame implements MouseListener, KeyListener {
         _chkDisplayGreedyPath = new JCheckBox("Display Greedy");
         _chkDisplayBestPath = new JCheckBox("Display Best");
         _chkDisplayBackgroundData = new JCheckBox("Display Pheromones/Hill-climbing Tour");
+        _chkPolishWithOrOpt = new JCheckBox("Polish with Or-opt");
 
         bottomLeftPane.add(_chkDisplayGreedyPath);
         bottomLeftPane.add(_chkDisplayBestPath);
         bottomLeftPane.add(_chkDisplayBackgroundData);
+        bottomLeftPane.add(_chkPolishWithOrOpt);
+
+        JButton btnFitView = new JButton("Fit View");
+        btnFitView.setToolTipText("Zoom with the mouse wheel and drag to pan");
+        btnFitView.addActionListener(actionEvent -> _drawPane.fitToView());
+        bottomLeftPane.add(btnFitView);
 
         //
         // Setup top right pane
@@ -128,6 +150,11 @@ public class TSPWindow extends JFrame implements MouseListener, KeyListener {
         //
         // Setup bottom right pane
         //
+        _cmbStartTour = new JComboBox<Object>();
+        _cmbStartTour.setToolTipText("Tour the local searches start from when there is no best tour yet");
+        bottomRightPane.add(new JLabel("Start Tour: "));
+        bottomRightPane.add(_cmbStartTour);
+
         bottomRightPane.add(new JLabel("Random Seed: "));
         _txtRandomSeedValue = new NumericTextField("", 10);
         bottomRightPane.add(_txtRandomSeedValue);
@@ -216,7 +243,10 @@ public class TSPWindow extends JFrame implements MouseListener, KeyListener {
         _txtRandomSeedValue.setText(String.valueOf(seedValue));
     }
 
-    private long getRandomSeedValue() {
+    /**
+     * Returns the random seed entered by the user (0 if none is entered).
+     */
+    public long getRandomSeedValue() {
         if (!_txtRandomSeedValue.getText().isEmpty()) {
             try {
                 return ((NumericTextField) _txtRandomSeedValue).getNumberValue().longValue();
@@ -229,7 +259,10 @@ public class TSPWindow extends JFrame implements MouseListener, KeyListener {
         return 0;
     }
 
-    private int getGenerateNodeCount() {
+    /**
+     * Returns the number of cities to generate entered by the user.
+     */
+    public int getGenerateNodeCount() {
         if (!_txtGenerateNodeCount.getText().isEmpty()) {
             try {
                 return ((NumericTextField) _txtGenerateNodeCount).getNumberValue().intValue();
@@ -258,6 +291,24 @@ public class TSPWindow extends JFrame implements MouseListener, KeyListener {
         return _chkDisplayBackgroundData.isSelected();
     }
 
+    public boolean isPolishWithOrOptChecked() {
+        return _chkPolishWithOrOpt.isSelected();
+    }
+
+    /**
+     * Sets the choices offered for the start tour construction, selecting the first.
+     */
+    public void setStartTourOptions(Object[] options) {
+        _cmbStartTour.setModel(new DefaultComboBoxModel<Object>(options));
+    }
+
+    /**
+     * Returns the selected start tour construction (null if no choices were set).
+     */
+    public Object getSelectedStartTour() {
+        return _cmbStartTour.getSelectedItem();
+    }
+
     /**
      * Sets the status text in the status pane.
      */
@@ -274,6 +325,15 @@ public class TSPWindow extends JFrame implements MouseListener, KeyListener {
         return clicked;
     }
 
+    /**
+     * Returns the positions of the nodes added with ctrl-click since the last call to this method.
+     */
+    public List<Point> takeNewNodePositions() {
+        List<Point> positions = _newNodePositions;
+        _newNodePositions = new ArrayList<Point>();
+        return positions;
+    }
+
     /**
      * Returns if the release ants button has been clicked since the last call to this method.
      */
@@ -310,27 +370,35 @@ public class TSPWindow extends JFrame implements MouseListener, KeyListener {
         return clicked;
     }
 
+    /**
+     * Returns if the Lin-Kernighan button has been clicked since the last call to this method.
+     */
+    public boolean linKernighanButtonClicked() {
+        boolean clicked = _linKernighanButtonClicked;
+        _linKernighanButtonClicked = false;
+        return clicked;
+    }
+
+    /**
+     * Returns if the Or-opt button has been clicked since the last call to this method.
+     */
+    public boolean orOptButtonClicked() {
+        boolean clicked = _orOptButtonClicked;
+        _orOptButtonClicked = false;
+        return clicked;
+    }
+
     // **********************************************************
     // Event listeners for buttons/mouse events defined below
     // **********************************************************
 
     public void onClickGenerateButton(ActionEvent event) {
-        //
-        _graph.clear();
-        Integer numberToGenerate = getGenerateNodeCount();
-
-        long seedValue = getRandomSeedValue();
-        if (seedValue == 0) {
-            seedValue = System.currentTimeMillis();
-            setRandomSeedValue(seedValue);
-        }
-        Random rand = new Random(seedValue);
-        for (int i = 0; i < numberToGenerate; i++) {
-            int padding = 15;
-            int xPos = rand.nextInt(getSurface().getWidth() - padding * 2) + padding;
-            int yPos = rand.nextInt(getSurface().getHeight() - padding * 2) + padding;
-            _graph.createNode(xPos, yPos);
+        // Pick a seed now so the user can see (and reuse) the one the cities are generated from
+        if (getRandomSeedValue() == 0) {
+            setRandomSeedValue(System.currentTimeMillis());
         }
+        // Cities are generated to fill the pane, so go back to the unzoomed view
+        _drawPane.resetView();
         _generateButtonClicked = true;
     }
 
@@ -349,7 +417,10 @@ public class TSPWindow extends JFrame implements MouseListener, KeyListener {
     @Override
     public void mousePressed(MouseEvent e) {
         if (e.getButton() == MouseEvent.BUTTON1 && isKeyPressed(KeyEvent.VK_CONTROL)) {
-            _graph.createNode(e.getX(), e.getY());
+            // Nodes are placed in world coordinates, wherever the view is zoomed or panned to
+            int xPos = (int) Math.round(_drawPane.toWorldX(e.getX()));
+            int yPos = (int) Math.round(_drawPane.toWorldY(e.getY()));
+            _newNodePositions.add(new Point(xPos, yPos));
         }
     }
 
@@ -375,22 +446,31 @@ public class TSPWindow extends JFrame implements MouseListener, KeyListener {
         return _keysDown.contains(vkCode);
     }
 
-    @Override
-    public void repaint() {
-        super.repaint();
-
-        // Update our status bar using the most recent graph data
-        int numNodes = _graph.getNodeCount();
-        _txtNodeCount.setText(String.valueOf(numNodes));
-
-        long greedyPathLength = _graph.getGreedyPathLength();
+    /**
+     * Shows the number of nodes and the length of the greedy path in the status bar.
+     */
+    public void showGraphInfo(int nodeCount, long greedyPathLength) {
+        _txtNodeCount.setText(String.valueOf(nodeCount));
         _txtGreedyPathLength.setText(String.valueOf(greedyPathLength));
+    }
 
-        long bestPathLength = _graph.getBestPathLength();
-        _txtBestPathLength.setText(String.valueOf(bestPathLength));
+    /**
+     * Shows the length of a new best tour and the time (in ms) it took to find in the status bar.
+     * Must be called on the event dispatch thread; ignored if the graph has changed since.
+     */
+    public void showImprovement(long bestPathLength, long elapsedTime) {
+        if (_graph.getBestTour().isEmpty()) return;
 
-        long elapsedTime = _graph.getElapsedTime();
+        _txtBestPathLength.setText(String.valueOf(bestPathLength));
         _txtElapsedTimeToLastSolution.setText(String.valueOf(elapsedTime) + "ms");
     }
 
+    /**
+     * Clears the best tour shown in the status bar (after the graph has changed).
+     */
+    public void clearImprovement() {
+        _txtBestPathLength.setText("0");
+        _txtElapsedTimeToLastSolution.setText("0ms");
+    }
+
 }
@@ -0,0 +1,234 @@
+package tsp.io;
+
+import tsp.graph.DistanceMetric;
+import tsp.graph.Graph;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Reader for TSPLIB .tsp files with a NODE_COORD_SECTION and an EUC_2D, CEIL_2D, ATT or GEO
+ * edge weight type. The file is memory-mapped and the coordinates are parsed straight from the
+ * mapped bytes into primitive arrays, which are then bulk-loaded into the graph.
+ */
+public class TspLibReader {
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private MappedByteBuffer _buffer;
+    private int _position = 0;
+    private int _limit;
+
+    private String _name = "";
+    private int _dimension = -1;
+    private DistanceMetric _metric = null;
+    private double[] _xCoords;
+    private double[] _yCoords;
+
+    private TspLibReader(MappedByteBuffer buffer) {
+        _buffer = buffer;
+        _limit = buffer.limit();
+    }
+
+    /**
+     * Reads the instance in the specified file into the graph (replacing its contents).
+     * Node ids are the TSPLIB node numbers minus one. Returns the instance name.
+     */
+    public static String read(Path file, Graph graph) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        TspLibReader reader = new TspLibReader(buffer);
+        reader.parse();
+        graph.load(reader._xCoords, reader._yCoords, reader._dimension, reader._metric);
+        return reader._name;
+    }
+
+    private void parse() throws IOException {
+        while (_position < _limit) {
+            String line = readLine().trim();
+            if (line.isEmpty()) continue;
+
+            String key = line;
+            String value = "";
+            int separator = line.indexOf(':');
+            if (separator >= 0) {
+                key = line.substring(0, separator).trim();
+                value = line.substring(separator + 1).trim();
+            }
+
+            switch (key.toUpperCase(Locale.ROOT)) {
+                case "NAME":
+                    _name = value;
+                    break;
+                case "TYPE":
+                    if (!value.toUpperCase(Locale.ROOT).startsWith("TSP")) {
+                        throw new IOException("Unsupported problem type: " + value);
+                    }
+                    break;
+                case "DIMENSION":
+                    try {
+                        _dimension = Integer.parseInt(value);
+                    }
+                    catch (NumberFormatException e) {
+                        throw new IOException("Invalid DIMENSION: " + value);
+                    }
+                    break;
+                case "EDGE_WEIGHT_TYPE":
+                    try {
+                        _metric = DistanceMetric.valueOf(value.toUpperCase(Locale.ROOT));
+                    }
+                    catch (IllegalArgumentException e) {
+                        throw new IOException("Unsupported EDGE_WEIGHT_TYPE: " + value);
+                    }
+                    break;
+                case "NODE_COORD_SECTION":
+                    readNodeCoordinates();
+                    break;
+                case "EOF":
+                    _position = _limit;
+                    break;
+                default:
+                    if (key.toUpperCase(Locale.ROOT).endsWith("_SECTION")) {
+                        throw new IOException("Unsupported section: " + key);
+                    }
+                    // Other specification entries (COMMENT, NODE_COORD_TYPE, ...) are ignored
+                    break;
+            }
+        }
+
+        if (_metric == null) {
+            throw new IOException("Missing EDGE_WEIGHT_TYPE");
+        }
+        if (_xCoords == null) {
+            throw new IOException("Missing NODE_COORD_SECTION");
+        }
+    }
+
+    private void readNodeCoordinates() throws IOException {
+        if (_dimension < 0) {
+            throw new IOException("DIMENSION must precede NODE_COORD_SECTION");
+        }
+
+        _xCoords = new double[_dimension];
+        _yCoords = new double[_dimension];
+        boolean[] seen = new boolean[_dimension];
+        for (int i = 0; i < _dimension; i++) {
+            long nodeNumber = (long) readNumber();
+            if (nodeNumber < 1 || nodeNumber > _dimension || seen[(int) nodeNumber - 1]) {
+                throw new IOException("Invalid node number " + nodeNumber + " in NODE_COORD_SECTION");
+            }
+            int id = (int) nodeNumber - 1;
+            seen[id] = true;
+            _xCoords[id] = readNumber();
+            _yCoords[id] = readNumber();
+        }
+    }
+
+    private String readLine() {
+        int start = _position;
+        while (_position < _limit && _buffer.get(_position) != '\n') {
+            _position++;
+        }
+        String line = substring(start, _position);
+        if (_position < _limit) _position++;
+        return line;
+    }
+
+    /**
+     * Parses the next whitespace separated decimal number (with optional sign, fraction and exponent).
+     */
+    private double readNumber() throws IOException {
+        while (_position < _limit && isWhitespace(_buffer.get(_position))) {
+            _position++;
+        }
+        int start = _position;
+
+        boolean negative = false;
+        if (_position < _limit && (_buffer.get(_position) == '-' || _buffer.get(_position) == '+')) {
+            negative = (_buffer.get(_position) == '-');
+            _position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        while (_position < _limit) {
+            byte b = _buffer.get(_position);
+            if (b >= '0' && b <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) digits++;
+                    if (fraction) exponent--;
+                }
+                else if (!fraction) {
+                    exponent++;
+                }
+            }
+            else if (b == '.' && !fraction) {
+                fraction = true;
+            }
+            else {
+                break;
+            }
+            _position++;
+        }
+
+        if (_position < _limit && (_buffer.get(_position) == 'e' || _buffer.get(_position) == 'E')) {
+            _position++;
+            boolean negativeExponent = false;
+            if (_position < _limit && (_buffer.get(_position) == '-' || _buffer.get(_position) == '+')) {
+                negativeExponent = (_buffer.get(_position) == '-');
+                _position++;
+            }
+            int value = 0;
+            while (_position < _limit && _buffer.get(_position) >= '0' && _buffer.get(_position) <= '9') {
+                value = Math.min(value * 10 + (_buffer.get(_position) - '0'), 10000);
+                _position++;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (_position == start || (_position < _limit && !isWhitespace(_buffer.get(_position)))) {
+            throw new IOException("Invalid number at byte offset " + start);
+        }
+
+        double result;
+        if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+            result = mantissa * POWERS_OF_TEN[exponent];
+        }
+        else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            result = mantissa / POWERS_OF_TEN[-exponent];
+        }
+        else {
+            return Double.parseDouble(substring(start, _position));
+        }
+        return negative ? -result : result;
+    }
+
+    private String substring(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = _buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+}
@@ -0,0 +1,32 @@
+package tsp.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writer for TSPLIB .tour files.
+ */
+public class TspLibWriter {
+
+    /**
+     * Writes the tour (given as node ids) to the file. Node numbers in the file are the ids plus one.
+     */
+    public static void writeTour(Path file, String name, int[] tour, long tourLength) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            writer.write("NAME : " + name + ".tour\n");
+            writer.write("COMMENT : Length " + tourLength + "\n");
+            writer.write("TYPE : TOUR\n");
+            writer.write("DIMENSION : " + tour.length + "\n");
+            writer.write("TOUR_SECTION\n");
+            for (int id : tour) {
+                writer.write(Integer.toString(id + 1));
+                writer.write('\n');
+            }
+            writer.write("-1\n");
+            writer.write("EOF\n");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package tsp.solver;
+
+import tsp.graph.Graph;
+import tsp.graph.NeighborLists;
+
+import java.util.Arrays;
+
+/**
+ * The edges between each node and its nearest neighbours (each edge listed once), sorted from
+ * shortest to longest. Sorting is done on packed (length, index) keys so it needs no boxing.
+ */
+class CandidateEdges {
+
+    private int[] _from;
+    private int[] _to;
+    private int[] _length;
+    private int _count = 0;
+
+    CandidateEdges(Graph graph, int neighborCount) {
+        NeighborLists neighbors = graph.getNeighborLists(neighborCount);
+        int nodeCount = graph.getNodeCount();
+        int capacity = nodeCount * neighbors.size();
+        int[] from = new int[capacity];
+        int[] to = new int[capacity];
+        int[] length = new int[capacity];
+        for (int i = 0; i < nodeCount; i++) {
+            for (int index = 0; index < neighbors.size(); index++) {
+                int j = neighbors.get(i, index);
+                // Mutual neighbours would list the edge twice, so keep it only on the smaller id's side
+                if (j < i && isNeighbor(neighbors, j, i)) continue;
+
+                from[_count] = i;
+                to[_count] = j;
+                length[_count] = graph.distance(i, j);
+                _count++;
+            }
+        }
+
+        long[] keys = new long[_count];
+        for (int e = 0; e < _count; e++) {
+            keys[e] = ((long) length[e] << 32) | e;
+        }
+        Arrays.sort(keys);
+
+        _from = new int[_count];
+        _to = new int[_count];
+        _length = new int[_count];
+        for (int e = 0; e < _count; e++) {
+            int index = (int) keys[e];
+            _from[e] = from[index];
+            _to[e] = to[index];
+            _length[e] = length[index];
+        }
+    }
+
+    private static boolean isNeighbor(NeighborLists neighbors, int node, int other) {
+        for (int index = 0; index < neighbors.size(); index++) {
+            if (neighbors.get(node, index) == other) return true;
+        }
+        return false;
+    }
+
+    int size() {
+        return _count;
+    }
+
+    int getFrom(int edge) {
+        return _from[edge];
+    }
+
+    int getTo(int edge) {
+        return _to[edge];
+    }
+
+    int getLength(int edge) {
+        return _length[edge];
+    }
+}
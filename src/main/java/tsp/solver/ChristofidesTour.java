@@ -0,0 +1,237 @@
+package tsp.solver;
+
+import tsp.graph.Graph;
+import tsp.graph.KdTree;
+import tsp.graph.Node;
+
+import java.util.Arrays;
+
+/**
+ * Christofides-style construction: a minimum spanning tree, plus a matching of its odd-degree
+ * nodes, gives a graph where every node has even degree; an Euler circuit of that graph, skipping
+ * nodes already visited, is the tour. The spanning tree is built (Kruskal) from the candidate
+ * edges only, and the odd nodes are matched greedily rather than with a minimum weight perfect
+ * matching, which keeps it at O(n k log n) but gives up the 1.5 approximation guarantee. It
+ * takes several times longer than the other constructions, so it is best suited to small and
+ * medium instances.
+ */
+public class ChristofidesTour implements TourConstruction {
+
+    private int _neighborCount;
+
+    public ChristofidesTour(int neighborCount) {
+        _neighborCount = neighborCount;
+    }
+
+    @Override
+    public int[] buildTour(Graph graph) {
+        int nodeCount = graph.getNodeCount();
+        if (nodeCount < 3) {
+            int[] tour = new int[nodeCount];
+            for (int i = 0; i < nodeCount; i++) {
+                tour[i] = i;
+            }
+            return tour;
+        }
+
+        // The tour graph holds the spanning tree edges followed by the matching edges
+        int[] edgeFrom = new int[nodeCount - 1 + nodeCount / 2];
+        int[] edgeTo = new int[edgeFrom.length];
+        int edgeCount = buildSpanningTree(graph, edgeFrom, edgeTo);
+        edgeCount = matchOddNodes(graph, edgeFrom, edgeTo, edgeCount);
+
+        int[] circuit = eulerCircuit(nodeCount, edgeFrom, edgeTo, edgeCount);
+
+        // Shortcut the circuit, visiting each node the first time it appears
+        boolean[] visited = new boolean[nodeCount];
+        int[] tour = new int[nodeCount];
+        int size = 0;
+        for (int node : circuit) {
+            if (!visited[node]) {
+                visited[node] = true;
+                tour[size++] = node;
+            }
+        }
+        return tour;
+    }
+
+    /**
+     * Adds the edges of a spanning tree to the edge arrays and returns the edge count. Candidate
+     * edges are used shortest first; if they leave the graph split (clusters far apart) the
+     * components are joined by a spanning tree over one representative node of each.
+     */
+    private int buildSpanningTree(Graph graph, int[] edgeFrom, int[] edgeTo) {
+        int nodeCount = graph.getNodeCount();
+        CandidateEdges edges = new CandidateEdges(graph, _neighborCount);
+        DisjointSets components = new DisjointSets(nodeCount);
+        int edgeCount = 0;
+        for (int e = 0; e < edges.size() && edgeCount < nodeCount - 1; e++) {
+            if (components.union(edges.getFrom(e), edges.getTo(e))) {
+                edgeFrom[edgeCount] = edges.getFrom(e);
+                edgeTo[edgeCount] = edges.getTo(e);
+                edgeCount++;
+            }
+        }
+        if (edgeCount == nodeCount - 1) return edgeCount;
+
+        int[] representatives = new int[nodeCount - edgeCount];
+        int count = 0;
+        for (int id = 0; id < nodeCount; id++) {
+            if (components.find(id) == id) {
+                representatives[count++] = id;
+            }
+        }
+
+        // Prim's algorithm over the representatives (there are only a few of them)
+        int[] closest = new int[count];
+        long[] closestDistance = new long[count];
+        Arrays.fill(closestDistance, Long.MAX_VALUE);
+        boolean[] joined = new boolean[count];
+        int last = 0;
+        joined[0] = true;
+        for (int added = 1; added < count; added++) {
+            int next = -1;
+            for (int i = 0; i < count; i++) {
+                if (joined[i]) continue;
+
+                long distance = graph.distance(representatives[last], representatives[i]);
+                if (distance < closestDistance[i]) {
+                    closestDistance[i] = distance;
+                    closest[i] = last;
+                }
+                if (next == -1 || closestDistance[i] < closestDistance[next]) {
+                    next = i;
+                }
+            }
+            joined[next] = true;
+            edgeFrom[edgeCount] = representatives[closest[next]];
+            edgeTo[edgeCount] = representatives[next];
+            edgeCount++;
+            last = next;
+        }
+        return edgeCount;
+    }
+
+    /**
+     * Adds edges pairing up the nodes of odd degree to the edge arrays and returns the new edge
+     * count. Pairs of near neighbours are matched shortest first; the few nodes left unmatched
+     * are then paired with their nearest unmatched node.
+     */
+    private int matchOddNodes(Graph graph, int[] edgeFrom, int[] edgeTo, int edgeCount) {
+        int nodeCount = graph.getNodeCount();
+        int[] degree = new int[nodeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            degree[edgeFrom[e]]++;
+            degree[edgeTo[e]]++;
+        }
+
+        int[] oddNodes = new int[nodeCount];
+        int oddCount = 0;
+        for (int id = 0; id < nodeCount; id++) {
+            if ((degree[id] & 1) != 0) {
+                oddNodes[oddCount++] = id;
+            }
+        }
+
+        double[] xCoords = new double[oddCount];
+        double[] yCoords = new double[oddCount];
+        for (int i = 0; i < oddCount; i++) {
+            Node node = graph.getNode(oddNodes[i]);
+            xCoords[i] = node.getX();
+            yCoords[i] = node.getY();
+        }
+        KdTree oddTree = new KdTree(xCoords, yCoords, oddCount);
+
+        // Sort the candidate pairs on packed (length, pair) keys; pairs are indexed i * k + index
+        int k = Math.min(_neighborCount, Math.max(0, oddCount - 1));
+        long[] keys = new long[oddCount * k];
+        int[] pairedWith = new int[oddCount * k];
+        int keyCount = 0;
+        for (int i = 0; i < oddCount; i++) {
+            int[] neighbors = oddTree.nearestNeighbors(i, k);
+            for (int index = 0; index < neighbors.length; index++) {
+                int pair = i * k + index;
+                pairedWith[pair] = neighbors[index];
+                keys[keyCount++] = ((long) graph.distance(oddNodes[i], oddNodes[neighbors[index]]) << 32) | pair;
+            }
+        }
+        Arrays.sort(keys, 0, keyCount);
+
+        boolean[] matched = new boolean[oddCount];
+        for (int p = 0; p < keyCount; p++) {
+            int pair = (int) keys[p];
+            int i = pair / k;
+            int j = pairedWith[pair];
+            if (matched[i] || matched[j]) continue;
+
+            matched[i] = true;
+            matched[j] = true;
+            edgeFrom[edgeCount] = oddNodes[i];
+            edgeTo[edgeCount] = oddNodes[j];
+            edgeCount++;
+        }
+
+        for (int i = 0; i < oddCount; i++) {
+            if (matched[i]) {
+                oddTree.remove(i);
+            }
+        }
+        for (int i = 0; i < oddCount; i++) {
+            if (oddTree.isRemoved(i)) continue;
+
+            oddTree.remove(i);
+            int j = oddTree.nearest(xCoords[i], yCoords[i]);
+            oddTree.remove(j);
+            edgeFrom[edgeCount] = oddNodes[i];
+            edgeTo[edgeCount] = oddNodes[j];
+            edgeCount++;
+        }
+        return edgeCount;
+    }
+
+    /**
+     * Returns an Euler circuit (Hierholzer's algorithm) of the connected graph with the specified
+     * edges, every node of which has even degree.
+     */
+    private static int[] eulerCircuit(int nodeCount, int[] edgeFrom, int[] edgeTo, int edgeCount) {
+        // Adjacency in compressed form: the edges of node i are adjacent[start[i]] to adjacent[start[i + 1] - 1]
+        int[] start = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            start[edgeFrom[e] + 1]++;
+            start[edgeTo[e] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] next = Arrays.copyOf(start, nodeCount);
+        int[] adjacent = new int[2 * edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            adjacent[next[edgeFrom[e]]++] = e;
+            adjacent[next[edgeTo[e]]++] = e;
+        }
+
+        System.arraycopy(start, 0, next, 0, nodeCount);
+        boolean[] used = new boolean[edgeCount];
+        int[] stack = new int[edgeCount + 1];
+        int stackSize = 0;
+        int[] circuit = new int[edgeCount + 1];
+        int circuitSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            int node = stack[stackSize - 1];
+            while (next[node] < start[node + 1] && used[adjacent[next[node]]]) {
+                next[node]++;
+            }
+            if (next[node] == start[node + 1]) {
+                circuit[circuitSize++] = node;
+                stackSize--;
+            }
+            else {
+                int e = adjacent[next[node]++];
+                used[e] = true;
+                stack[stackSize++] = (edgeFrom[e] == node) ? edgeTo[e] : edgeFrom[e];
+            }
+        }
+        return circuit;
+    }
+}
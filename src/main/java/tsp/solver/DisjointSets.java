@@ -0,0 +1,46 @@
+package tsp.solver;
+
+/**
+ * Union-find over node ids (with path halving and union by size), used to keep track of the
+ * fragments joined by the edge-based construction heuristics.
+ */
+class DisjointSets {
+
+    private int[] _parent;
+    private int[] _size;
+
+    DisjointSets(int count) {
+        _parent = new int[count];
+        _size = new int[count];
+        for (int i = 0; i < count; i++) {
+            _parent[i] = i;
+            _size[i] = 1;
+        }
+    }
+
+    int find(int id) {
+        while (_parent[id] != id) {
+            _parent[id] = _parent[_parent[id]];
+            id = _parent[id];
+        }
+        return id;
+    }
+
+    /**
+     * Merges the sets holding the two ids. Returns false if they were already in the same set.
+     */
+    boolean union(int id1, int id2) {
+        int root1 = find(id1);
+        int root2 = find(id2);
+        if (root1 == root2) return false;
+
+        if (_size[root1] < _size[root2]) {
+            int tmp = root1;
+            root1 = root2;
+            root2 = tmp;
+        }
+        _parent[root2] = root1;
+        _size[root1] += _size[root2];
+        return true;
+    }
+}
@@ -0,0 +1,101 @@
+package tsp.solver;
+
+import java.util.Arrays;
+
+/**
+ * Queue of 'active' nodes used by the first-improvement local searches. A node is taken off
+ * the queue (its don't-look bit is set) once it has been examined without finding an improving
+ * move, and only put back on when one of the tour edges next to it changes.
+ */
+class DontLookBits {
+
+    private Tour _tour = null;
+    private LocalSearch _observer = null;
+    private int[] _queue = new int[0];
+    private boolean[] _queued = new boolean[0];
+    private int _head = 0;
+    private int _size = 0;
+
+    /**
+     * Returns true if the queue was last reset for the specified tour.
+     */
+    boolean isResetFor(Tour tour) {
+        return tour == _tour && _queued.length == tour.size();
+    }
+
+    /**
+     * Marks every node of the tour as active.
+     */
+    void reset(Tour tour) {
+        int n = tour.size();
+        _tour = tour;
+        if (_queue.length != n) {
+            _queue = new int[n];
+            _queued = new boolean[n];
+        }
+        Arrays.fill(_queued, false);
+        _head = 0;
+        _size = 0;
+        for (int i = 0; i < n; i++) {
+            push(tour.get(i));
+        }
+    }
+
+    /**
+     * Marks the node as active if the queue belongs to the tour (otherwise every node of the
+     * tour is made active).
+     */
+    void activate(Tour tour, int node) {
+        if (isResetFor(tour)) {
+            push(node);
+        }
+        else {
+            reset(tour);
+        }
+    }
+
+    /**
+     * Sets the search that is told about the nodes touched by a move (may be null).
+     */
+    void setObserver(LocalSearch observer) {
+        _observer = observer;
+    }
+
+    /**
+     * Marks a node whose tour edges were changed by a move as active, and passes it on to the
+     * observer.
+     */
+    void touch(Tour tour, int node) {
+        if (isResetFor(tour)) {
+            push(node);
+        }
+        if (_observer != null) {
+            _observer.activate(tour, node);
+        }
+    }
+
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /**
+     * Marks the node as active (does nothing if it already is).
+     */
+    void push(int node) {
+        if (_queued[node]) return;
+        _queued[node] = true;
+        _queue[(_head + _size) % _queue.length] = node;
+        _size++;
+    }
+
+    /**
+     * Removes and returns the next active node.
+     */
+    int poll() {
+        int node = _queue[_head];
+        _head = (_head + 1) % _queue.length;
+        _size--;
+        _queued[node] = false;
+        return node;
+    }
+}
@@ -0,0 +1,96 @@
+package tsp.solver;
+
+import tsp.graph.Graph;
+import tsp.graph.KdTree;
+import tsp.graph.Node;
+
+import java.util.Arrays;
+
+/**
+ * Greedy edge (multi-fragment) construction: candidate edges are added from shortest to longest
+ * whenever both ends still have fewer than two tour edges and the edge does not close a cycle.
+ * Only the edges to each node's nearest neighbours are considered, so building the fragments is
+ * O(n k log n). The fragments left over are then chained together, each time jumping from the
+ * end of the current fragment to the nearest end of an unused one. The tour is typically within
+ * 15-20% of optimal, and a better start for 2-opt and Lin-Kernighan than a nearest-neighbour tour.
+ */
+public class GreedyEdgeTour implements TourConstruction {
+
+    private int _neighborCount;
+
+    public GreedyEdgeTour(int neighborCount) {
+        _neighborCount = neighborCount;
+    }
+
+    @Override
+    public int[] buildTour(Graph graph) {
+        int nodeCount = graph.getNodeCount();
+        int[] link1 = new int[nodeCount];
+        int[] link2 = new int[nodeCount];
+        Arrays.fill(link1, -1);
+        Arrays.fill(link2, -1);
+
+        CandidateEdges edges = new CandidateEdges(graph, _neighborCount);
+        DisjointSets fragments = new DisjointSets(nodeCount);
+        for (int e = 0; e < edges.size(); e++) {
+            int from = edges.getFrom(e);
+            int to = edges.getTo(e);
+            if (link2[from] != -1 || link2[to] != -1) continue;
+            if (!fragments.union(from, to)) continue;
+
+            addLink(link1, link2, from, to);
+            addLink(link1, link2, to, from);
+        }
+
+        return joinFragments(graph, link1, link2);
+    }
+
+    private static void addLink(int[] link1, int[] link2, int node, int other) {
+        if (link1[node] == -1) {
+            link1[node] = other;
+        }
+        else {
+            link2[node] = other;
+        }
+    }
+
+    /**
+     * Chains the fragments (paths, or single nodes) into a tour, using a spatial index holding the
+     * fragment ends that have not been used yet.
+     */
+    private static int[] joinFragments(Graph graph, int[] link1, int[] link2) {
+        int nodeCount = graph.getNodeCount();
+        KdTree fragmentEnds = graph.createSpatialIndex();
+        int start = -1;
+        for (int id = 0; id < nodeCount; id++) {
+            if (link2[id] != -1) {
+                fragmentEnds.remove(id);
+            }
+            else if (start == -1) {
+                start = id;
+            }
+        }
+
+        int[] tour = new int[nodeCount];
+        int size = 0;
+        while (start != -1) {
+            // Walk the fragment from one end to the other
+            fragmentEnds.remove(start);
+            int previous = -1;
+            int current = start;
+            while (true) {
+                tour[size++] = current;
+                int next = (link1[current] != previous) ? link1[current] : link2[current];
+                if (next == -1) break;
+
+                previous = current;
+                current = next;
+            }
+            fragmentEnds.remove(current);
+
+            Node end = graph.getNode(current);
+            start = fragmentEnds.nearest(end.getX(), end.getY());
+        }
+        return tour;
+    }
+}
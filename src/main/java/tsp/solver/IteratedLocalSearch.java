@@ -0,0 +1,155 @@
+package tsp.solver;
+
+import tsp.graph.Graph;
+
+import java.util.Random;
+
+/**
+ * Iterated local search: once the local search reaches a local optimum the tour is perturbed
+ * with a double-bridge kick and optimised again, keeping the result if it is no longer than the
+ * best tour so far and rolling the tour back otherwise.
+ *
+ * The kick is segment-local: it swaps two adjacent segments that together span at most
+ * KICK_LENGTH positions, so applying it, re-optimising around the six nodes whose edges
+ * changed (using the local search's don't-look bits) and rolling it back all take time
+ * proportional to the size of the change rather than the size of the tour.
+ */
+public class IteratedLocalSearch {
+
+    public static final int KICK_LENGTH = 50;
+
+    private Graph _graph;
+    private LocalSearch _localSearch;
+    private LocalSearch _polisher = null;
+    private Random _random;
+
+    private Tour _tour;
+    private long _length;
+    private long _bestLength;
+    private boolean _kicked = false;
+    private int[] _kickNodes = new int[6];
+
+    public IteratedLocalSearch(Graph graph, LocalSearch localSearch, Random random) {
+        _graph = graph;
+        _localSearch = localSearch;
+        _random = random;
+    }
+
+    /**
+     * Sets a second local search applied whenever the main one reaches a local optimum (may be null).
+     * Each search is told about the nodes touched by the other one's moves, so the main search
+     * looks again around whatever the polisher changed and vice versa.
+     */
+    public void setPolisher(LocalSearch polisher) {
+        if (_polisher != null) {
+            _polisher.setMoveObserver(null);
+        }
+        _polisher = polisher;
+        _localSearch.setMoveObserver(polisher);
+        if (polisher != null) {
+            polisher.setMoveObserver(_localSearch);
+        }
+    }
+
+    /**
+     * Starts searching from the specified tour (which is modified in place).
+     */
+    public void reset(Tour tour) {
+        _tour = tour;
+        _length = tour.length(_graph);
+        _bestLength = _length;
+        _kicked = false;
+        tour.commit();
+    }
+
+    public Tour getTour() {
+        return _tour;
+    }
+
+    public long getBestLength() {
+        return _bestLength;
+    }
+
+    /**
+     * Runs the search until System.nanoTime() reaches the deadline. The deadline is only checked
+     * between kicks (or between moves before the first local optimum), so when this returns the
+     * tour always holds the best tour found. Returns true if the tour got shorter.
+     */
+    public boolean run(long deadline) {
+        long startLength = _bestLength;
+        while (true) {
+            long gain = _localSearch.improve(_tour);
+            if (gain == 0 && _polisher != null) {
+                gain = _polisher.improve(_tour);
+            }
+
+            if (gain > 0) {
+                _length -= gain;
+                if (!_kicked) {
+                    // Still descending to the first local optimum, so every move is an improvement
+                    _bestLength = _length;
+                    if (System.nanoTime() >= deadline) break;
+                }
+                continue;
+            }
+
+            if (_kicked) {
+                // Accept the new local optimum unless it is longer than the best one
+                if (_length <= _bestLength) {
+                    _bestLength = _length;
+                    _tour.commit();
+                }
+                else {
+                    _tour.rollback();
+                    _length = _bestLength;
+                }
+                _kicked = false;
+            }
+
+            if (System.nanoTime() >= deadline || !kick()) break;
+        }
+        return _bestLength < startLength;
+    }
+
+    /**
+     * Applies a random segment-local double-bridge kick: reading the tour from a random node 'a' as
+     * a b..c d..e f, the segments b..c and d..e are swapped to give a d..e b..c f.
+     * Returns false if the tour is too small to kick.
+     */
+    private boolean kick() {
+        int n = _tour.size();
+        int span = Math.min(KICK_LENGTH, n - 2);
+        if (span < 3) return false;
+
+        int origin = _random.nextInt(n);
+        int cut1 = 1 + _random.nextInt(span - 2);
+        int cut2 = cut1 + 1 + _random.nextInt(span - 1 - cut1);
+
+        int a = _tour.get(origin);
+        int b = _tour.get(origin + 1);
+        int c = _tour.get(origin + cut1);
+        int d = _tour.get(origin + cut1 + 1);
+        int e = _tour.get(origin + cut2);
+        int f = _tour.get(origin + cut2 + 1);
+
+        _tour.checkpoint();
+        _kickNodes[0] = a;
+        _kickNodes[1] = b;
+        _kickNodes[2] = c;
+        _kickNodes[3] = d;
+        _kickNodes[4] = e;
+        _kickNodes[5] = f;
+        ThreeOpt.applyMove(_tour, 4, _kickNodes);
+        _length += (long) _graph.distance(a, d) + _graph.distance(e, b) + _graph.distance(c, f)
+                - _graph.distance(a, b) - _graph.distance(c, d) - _graph.distance(e, f);
+        _kicked = true;
+
+        for (int node : _kickNodes) {
+            _localSearch.activate(_tour, node);
+            if (_polisher != null) {
+                _polisher.activate(_tour, node);
+            }
+        }
+        return true;
+    }
+}
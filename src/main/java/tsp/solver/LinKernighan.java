@@ -0,0 +1,203 @@
+package tsp.solver;
+
+import tsp.graph.Graph;
+import tsp.graph.NeighborLists;
+
+/**
+ * Lin-Kernighan style variable-depth local search built from sequential 2-opt moves.
+ *
+ * Starting from a node t1 and one of its tour neighbours t2, the edge (t1, t2) is removed and
+ * a new edge (t2, t3) is added to a candidate neighbour t3. The tour is closed again by removing
+ * (t4, t3) and adding (t4, t1), which is a plain 2-opt move. The search then continues by
+ * breaking the closing edge (t1, t4) in the same way, building a chain of moves up to
+ * MAX_DEPTH deep as long as the cumulative gain stays positive. The best closed tour seen
+ * along the chain is kept and the remaining moves are undone.
+ *
+ * Nodes are processed from a queue using don't-look bits: a node is only examined again once
+ * one of the edges next to it has changed.
+ */
+public class LinKernighan implements LocalSearch {
+
+    public static final int MAX_DEPTH = 50;
+
+    private Graph _graph;
+    private int _neighborCount;
+
+    // Don't-look bits: nodes in the queue are 'active', all others are skipped
+    private DontLookBits _activeNodes = new DontLookBits();
+
+    // Chain of 2-opt moves applied during the current step (4 nodes per move)
+    private int[] _moves = new int[4 * MAX_DEPTH];
+    private int _moveCount = 0;
+
+    public LinKernighan(Graph graph, int neighborCount) {
+        _graph = graph;
+        _neighborCount = neighborCount;
+    }
+
+    /**
+     * Processes active nodes until an improving move is found and applied.
+     * Returns the reduction in tour length, or 0 once no active nodes remain
+     * (the tour is a local optimum).
+     */
+    @Override
+    public long improve(Tour tour) {
+        int n = tour.size();
+        if (n < 5) return 0;
+
+        if (!_activeNodes.isResetFor(tour)) {
+            resetQueue(tour);
+        }
+
+        NeighborLists neighbors = _graph.getNeighborLists(_neighborCount);
+        while (!_activeNodes.isEmpty()) {
+            int t1 = _activeNodes.poll();
+            for (int direction = 0; direction < 2; direction++) {
+                int t2 = (direction == 0) ? tour.next(t1) : tour.prev(t1);
+                long gain = improveFrom(tour, neighbors, t1, t2);
+                if (gain > 0) {
+                    // Re-activate every endpoint of the edges that changed
+                    _activeNodes.touch(tour, t1);
+                    for (int i = 0; i < _moveCount * 4; i++) {
+                        _activeNodes.touch(tour, _moves[i]);
+                    }
+                    return gain;
+                }
+            }
+        }
+
+        return 0;
+    }
+
+    @Override
+    public void activate(Tour tour, int node) {
+        _activeNodes.activate(tour, node);
+    }
+
+    @Override
+    public void setMoveObserver(LocalSearch observer) {
+        _activeNodes.setObserver(observer);
+    }
+
+    /**
+     * Marks every node of the tour as active.
+     */
+    public void resetQueue(Tour tour) {
+        _activeNodes.reset(tour);
+    }
+
+    /**
+     * Searches for an improving move chain starting by removing the edge (t1, t2).
+     * Each candidate for the first added edge is tried in turn; deeper levels greedily
+     * follow the most promising candidate. Returns the gain of the applied chain (or 0).
+     */
+    private long improveFrom(Tour tour, NeighborLists neighbors, int t1, int t2) {
+        int removedT1T2 = _graph.distance(t1, t2);
+
+        for (int i = 0; i < neighbors.size(); i++) {
+            int t3 = neighbors.get(t2, i);
+            int addedT2T3 = _graph.distance(t2, t3);
+            if (addedT2T3 >= removedT1T2) break;
+            if (t3 == t1 || t3 == tour.next(t2) || t3 == tour.prev(t2)) continue;
+
+            _moveCount = 0;
+            long bestGain = 0;
+            int bestMoveCount = 0;
+
+            long gain = removedT1T2 - addedT2T3;
+            int t4 = closingNode(tour, t1, t2, t3);
+            int currT2 = t2;
+            int currT3 = t3;
+            while (true) {
+                // Apply the move: remove (currT2's edge to t1) and (t4, t3), add (currT2, t3) and (t4, t1)
+                gain += _graph.distance(t4, currT3);
+                applyMove(tour, t1, currT2, t4, currT3);
+
+                long closedGain = gain - _graph.distance(t4, t1);
+                if (closedGain > bestGain) {
+                    bestGain = closedGain;
+                    bestMoveCount = _moveCount;
+                }
+                if (_moveCount >= MAX_DEPTH) break;
+
+                // Continue the chain by breaking the closing edge (t1, t4)
+                currT2 = t4;
+                currT3 = nextCandidate(tour, neighbors, t1, currT2, gain);
+                if (currT3 == -1) break;
+                gain -= _graph.distance(currT2, currT3);
+                t4 = closingNode(tour, t1, currT2, currT3);
+            }
+
+            // Undo the moves past the best closed tour found
+            while (_moveCount > bestMoveCount) {
+                undoMove(tour);
+            }
+            if (bestGain > 0) {
+                return bestGain;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Picks the next node t3 to link to t2 during a chain, or -1 if no candidate keeps the cumulative
+     * gain positive. Prefers the candidate maximising the gain after the edge (t4, t3) is removed.
+     * Edges added earlier in the chain are never removed again.
+     */
+    private int nextCandidate(Tour tour, NeighborLists neighbors, int t1, int t2, long gain) {
+        int bestT3 = -1;
+        long bestValue = Long.MIN_VALUE;
+        for (int i = 0; i < neighbors.size(); i++) {
+            int t3 = neighbors.get(t2, i);
+            int addedT2T3 = _graph.distance(t2, t3);
+            if (gain - addedT2T3 <= 0) break;
+            if (t3 == t1 || t3 == tour.next(t2) || t3 == tour.prev(t2)) continue;
+
+            int t4 = closingNode(tour, t1, t2, t3);
+            if (wasAdded(t4, t3)) continue;
+
+            long value = _graph.distance(t4, t3) - addedT2T3;
+            if (value > bestValue) {
+                bestValue = value;
+                bestT3 = t3;
+            }
+        }
+        return bestT3;
+    }
+
+    /**
+     * Returns the node t4 next to t3 whose edge must be removed to close the tour after adding (t2, t3):
+     * the predecessor of t3 when reading the tour in the direction where t2 follows t1.
+     */
+    private static int closingNode(Tour tour, int t1, int t2, int t3) {
+        return (tour.next(t1) == t2) ? tour.prev(t3) : tour.next(t3);
+    }
+
+    private boolean wasAdded(int node1, int node2) {
+        for (int i = 0; i < _moveCount; i++) {
+            int t2 = _moves[4 * i + 1];
+            int t3 = _moves[4 * i + 3];
+            if ((t2 == node1 && t3 == node2) || (t2 == node2 && t3 == node1)) return true;
+        }
+        return false;
+    }
+
+    private void applyMove(Tour tour, int t1, int t2, int t4, int t3) {
+        tour.twoOptMove(t1, t2, t4, t3);
+        int offset = 4 * _moveCount++;
+        _moves[offset] = t1;
+        _moves[offset + 1] = t2;
+        _moves[offset + 2] = t4;
+        _moves[offset + 3] = t3;
+    }
+
+    private void undoMove(Tour tour) {
+        int offset = 4 * --_moveCount;
+        int t1 = _moves[offset];
+        int t2 = _moves[offset + 1];
+        int t4 = _moves[offset + 2];
+        int t3 = _moves[offset + 3];
+        tour.twoOptMove(t1, t4, t2, t3);
+    }
+}
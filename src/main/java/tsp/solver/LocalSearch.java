@@ -0,0 +1,26 @@
+package tsp.solver;
+
+/**
+ * Common interface of the local search engines that improve a tour in place.
+ */
+public interface LocalSearch {
+
+    /**
+     * Applies an improving move to the tour. Returns the reduction in tour length,
+     * or 0 if no improving move exists (the tour is a local optimum).
+     */
+    long improve(Tour tour);
+
+    /**
+     * Asks the search to look at the node again after the tour was changed outside the search
+     * (e.g. by a perturbation). Searches that always scan the whole tour ignore this.
+     */
+    void activate(Tour tour, int node);
+
+    /**
+     * Sets a search to be told (through activate) about every node whose tour edges are changed
+     * by a move of this search, so that two searches working on the same tour keep each other's
+     * active nodes up to date (may be null).
+     */
+    void setMoveObserver(LocalSearch observer);
+}
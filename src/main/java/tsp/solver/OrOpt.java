@@ -0,0 +1,182 @@
+package tsp.solver;
+
+import tsp.graph.Graph;
+import tsp.graph.NeighborLists;
+
+/**
+ * Or-opt local search: moves a chain of 1 to MAX_SEGMENT_LENGTH consecutive nodes to another
+ * place in the tour, keeping or reversing its orientation.
+ *
+ * Reading the tour as: p s1..s2 n .. e f .. (back to p), the segment s1..s2 is removed (joining
+ * p to n) and inserted between e and f, either as e s1..s2 f or as e s2..s1 f. Every move
+ * changes three edges, so its gain is scored in constant time. The node e is taken from the
+ * neighbour list of the segment end that becomes linked to it, and the list is only scanned
+ * while the new edge is shorter than the gain from removing the segment. Moves are applied as
+ * 3-opt segment insertions (see ThreeOpt) and nodes are examined from a queue of active nodes
+ * using don't-look bits.
+ */
+public class OrOpt implements LocalSearch {
+
+    public static final int MAX_SEGMENT_LENGTH = 3;
+
+    private Graph _graph;
+    private int _neighborCount;
+    private DontLookBits _activeNodes = new DontLookBits();
+
+    // Tour and reading direction used while scanning moves from the current node
+    private Tour _tour;
+    private boolean _forward;
+
+    private int[] _segment = new int[MAX_SEGMENT_LENGTH];
+    private int[] _moveNodes = new int[6];
+
+    public OrOpt(Graph graph, int neighborCount) {
+        _graph = graph;
+        _neighborCount = neighborCount;
+    }
+
+    /**
+     * Finds an improving segment move for the tour and applies it.
+     * Returns the reduction in tour length, or 0 if no segment move improves the tour
+     * (with respect to the neighbour lists).
+     */
+    @Override
+    public long improve(Tour tour) {
+        int n = tour.size();
+        if (n < MAX_SEGMENT_LENGTH + 3) return 0;
+
+        if (!_activeNodes.isResetFor(tour)) {
+            _activeNodes.reset(tour);
+        }
+
+        NeighborLists neighbors = _graph.getNeighborLists(_neighborCount);
+        _tour = tour;
+        long gain = 0;
+        while (gain == 0 && !_activeNodes.isEmpty()) {
+            int s1 = _activeNodes.poll();
+            for (int direction = 0; direction < 2 && gain == 0; direction++) {
+                _forward = (direction == 0);
+                gain = improveFrom(neighbors, s1);
+            }
+        }
+        _tour = null;
+        return gain;
+    }
+
+    @Override
+    public void activate(Tour tour, int node) {
+        _activeNodes.activate(tour, node);
+    }
+
+    @Override
+    public void setMoveObserver(LocalSearch observer) {
+        _activeNodes.setObserver(observer);
+    }
+
+    /**
+     * Marks every node of the tour as active.
+     */
+    public void resetQueue(Tour tour) {
+        _activeNodes.reset(tour);
+    }
+
+    /**
+     * Applies improving moves until the tour is Or-optimal, starting with every node active.
+     * Returns the total reduction in tour length.
+     */
+    public long polish(Tour tour) {
+        resetQueue(tour);
+        long totalGain = 0;
+        long gain;
+        while ((gain = improve(tour)) > 0) {
+            totalGain += gain;
+        }
+        return totalGain;
+    }
+
+    /**
+     * Tries every segment starting at s1 (in the current reading direction) and applies the first
+     * improving move found. Returns its gain, or 0 if there is none.
+     */
+    private long improveFrom(NeighborLists neighbors, int s1) {
+        int p = pred(s1);
+        int s2 = s1;
+        for (int length = 1; length <= MAX_SEGMENT_LENGTH; length++) {
+            if (length > 1) {
+                s2 = succ(s2);
+            }
+            _segment[length - 1] = s2;
+            int n = succ(s2);
+            if (n == p) break;
+
+            long removeGain = (long) _graph.distance(p, s1) + _graph.distance(s2, n) - _graph.distance(p, n);
+            if (removeGain <= 0) continue;
+
+            // e s1..s2 f: s1 is linked to e, so e comes from the neighbour list of s1
+            for (int i = 0; i < neighbors.size(); i++) {
+                int e = neighbors.get(s1, i);
+                int addedES1 = _graph.distance(e, s1);
+                if (addedES1 >= removeGain) break;
+                if (e == p || inSegment(e, length)) continue;
+
+                int f = succ(e);
+                long gain = removeGain + _graph.distance(e, f) - addedES1 - _graph.distance(s2, f);
+                if (gain > 0) {
+                    applyMove(4, p, s1, s2, n, e, f, length);
+                    return gain;
+                }
+            }
+
+            // e s2..s1 f: s2 is linked to e, so e comes from the neighbour list of s2
+            for (int i = 0; i < neighbors.size(); i++) {
+                int e = neighbors.get(s2, i);
+                int addedES2 = _graph.distance(e, s2);
+                if (addedES2 >= removeGain) break;
+                if (e == p || inSegment(e, length)) continue;
+
+                int f = succ(e);
+                long gain = removeGain + _graph.distance(e, f) - addedES2 - _graph.distance(s1, f);
+                if (gain > 0) {
+                    applyMove(5, p, s1, s2, n, e, f, length);
+                    return gain;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private boolean inSegment(int node, int length) {
+        for (int i = 0; i < length; i++) {
+            if (_segment[i] == node) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Applies the segment insertion as a 3-opt move and re-activates the nodes around the changed edges.
+     */
+    private void applyMove(int moveCase, int p, int s1, int s2, int n, int e, int f, int length) {
+        _moveNodes[0] = p;
+        _moveNodes[1] = s1;
+        _moveNodes[2] = s2;
+        _moveNodes[3] = n;
+        _moveNodes[4] = e;
+        _moveNodes[5] = f;
+        ThreeOpt.applyMove(_tour, moveCase, _moveNodes);
+
+        for (int node : _moveNodes) {
+            _activeNodes.touch(_tour, node);
+        }
+        for (int i = 0; i < length; i++) {
+            _activeNodes.touch(_tour, _segment[i]);
+        }
+    }
+
+    private int succ(int node) {
+        return _forward ? _tour.next(node) : _tour.prev(node);
+    }
+
+    private int pred(int node) {
+        return _forward ? _tour.prev(node) : _tour.next(node);
+    }
+}
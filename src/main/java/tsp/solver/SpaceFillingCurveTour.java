@@ -0,0 +1,74 @@
+package tsp.solver;
+
+import tsp.graph.Graph;
+import tsp.graph.Node;
+
+import java.util.Arrays;
+
+/**
+ * Builds a tour by visiting the nodes in the order they appear along a Hilbert curve laid over
+ * the bounding square of the instance. Only needs a sort, so it is O(n log n) and very cheap for
+ * huge instances; the tour is typically around 25% longer than an optimal one.
+ */
+public class SpaceFillingCurveTour implements TourConstruction {
+
+    // The curve fills a grid of 2^ORDER x 2^ORDER cells, so curve positions fit in 30 bits
+    private static final int ORDER = 15;
+
+    @Override
+    public int[] buildTour(Graph graph) {
+        int nodeCount = graph.getNodeCount();
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Node node : graph.getNodes()) {
+            minX = Math.min(minX, node.getX());
+            minY = Math.min(minY, node.getY());
+            maxX = Math.max(maxX, node.getX());
+            maxY = Math.max(maxY, node.getY());
+        }
+
+        // Sort the nodes on packed (curve position, id) keys
+        int gridSize = 1 << ORDER;
+        double scale = (gridSize - 1) / Math.max(1e-9, Math.max(maxX - minX, maxY - minY));
+        long[] keys = new long[nodeCount];
+        for (int id = 0; id < nodeCount; id++) {
+            Node node = graph.getNode(id);
+            int x = (int) ((node.getX() - minX) * scale);
+            int y = (int) ((node.getY() - minY) * scale);
+            keys[id] = ((long) curvePosition(gridSize, x, y) << 32) | id;
+        }
+        Arrays.sort(keys);
+
+        int[] tour = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            tour[i] = (int) keys[i];
+        }
+        return tour;
+    }
+
+    /**
+     * Returns the position of the grid cell along the Hilbert curve filling a grid of the specified size.
+     */
+    static int curvePosition(int gridSize, int x, int y) {
+        int position = 0;
+        for (int s = gridSize / 2; s > 0; s /= 2) {
+            int rx = ((x & s) > 0) ? 1 : 0;
+            int ry = ((y & s) > 0) ? 1 : 0;
+            position += s * s * ((3 * rx) ^ ry);
+
+            // Rotate the quadrant so the sub-curve is in its standard orientation
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = gridSize - 1 - x;
+                    y = gridSize - 1 - y;
+                }
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return position;
+    }
+}
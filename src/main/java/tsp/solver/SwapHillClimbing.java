@@ -0,0 +1,136 @@
+package tsp.solver;
+
+import tsp.graph.Graph;
+
+/**
+ * Hill climbing over the node swap neighbourhood: two nodes exchange their places in the tour.
+ * A swap changes at most four edges (three if the nodes are next to each other), so the gain of
+ * every pair is scored in constant time and the chosen swap is applied to the tour in place.
+ *
+ * In first-improvement mode (the default) nodes are examined from a queue of active nodes using
+ * don't-look bits and the first improving swap found is applied. Best-improvement mode scores
+ * every pair of nodes and applies only the best swap.
+ */
+public class SwapHillClimbing implements LocalSearch {
+
+    private Graph _graph;
+    private boolean _firstImprovement = true;
+    private DontLookBits _activeNodes = new DontLookBits();
+
+    public SwapHillClimbing(Graph graph) {
+        _graph = graph;
+    }
+
+    /**
+     * Selects between applying the first improving swap found (true) or the best one (false).
+     */
+    public void setFirstImprovement(boolean firstImprovement) {
+        _firstImprovement = firstImprovement;
+    }
+
+    /**
+     * Finds an improving node swap for the tour and applies it.
+     * Returns the reduction in tour length, or 0 if no swap improves the tour.
+     */
+    @Override
+    public long improve(Tour tour) {
+        int n = tour.size();
+        if (n < 4) return 0;
+
+        if (!_firstImprovement) {
+            return improveBest(tour);
+        }
+
+        if (!_activeNodes.isResetFor(tour)) {
+            _activeNodes.reset(tour);
+        }
+        while (!_activeNodes.isEmpty()) {
+            int u = _activeNodes.poll();
+            for (int v = 0; v < n; v++) {
+                if (v == u) continue;
+
+                long gain = swapGain(tour, u, v);
+                if (gain > 0) {
+                    applySwap(tour, u, v);
+                    return gain;
+                }
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void activate(Tour tour, int node) {
+        _activeNodes.activate(tour, node);
+    }
+
+    @Override
+    public void setMoveObserver(LocalSearch observer) {
+        _activeNodes.setObserver(observer);
+    }
+
+    /**
+     * Scores every pair of nodes and applies the best improving swap.
+     */
+    private long improveBest(Tour tour) {
+        int n = tour.size();
+        long bestGain = 0;
+        int bestU = -1;
+        int bestV = -1;
+        for (int u = 0; u < n - 1; u++) {
+            for (int v = u + 1; v < n; v++) {
+                long gain = swapGain(tour, u, v);
+                if (gain > bestGain) {
+                    bestGain = gain;
+                    bestU = u;
+                    bestV = v;
+                }
+            }
+        }
+
+        if (bestGain > 0) {
+            applySwap(tour, bestU, bestV);
+        }
+        return bestGain;
+    }
+
+    /**
+     * Returns the reduction in tour length from swapping the nodes u and v.
+     */
+    private long swapGain(Tour tour, int u, int v) {
+        int prevU = tour.prev(u);
+        int nextU = tour.next(u);
+        int prevV = tour.prev(v);
+        int nextV = tour.next(v);
+
+        if (nextU == v) {
+            // prevU u v nextV -> prevU v u nextV
+            return (long) _graph.distance(prevU, u) + _graph.distance(v, nextV)
+                    - _graph.distance(prevU, v) - _graph.distance(u, nextV);
+        }
+        if (nextV == u) {
+            // prevV v u nextU -> prevV u v nextU
+            return (long) _graph.distance(prevV, v) + _graph.distance(u, nextU)
+                    - _graph.distance(prevV, u) - _graph.distance(v, nextU);
+        }
+
+        long removed = (long) _graph.distance(prevU, u) + _graph.distance(u, nextU)
+                + _graph.distance(prevV, v) + _graph.distance(v, nextV);
+        long added = (long) _graph.distance(prevU, v) + _graph.distance(v, nextU)
+                + _graph.distance(prevV, u) + _graph.distance(u, nextV);
+        return removed - added;
+    }
+
+    /**
+     * Swaps the nodes and re-activates every node whose tour edges changed.
+     */
+    private void applySwap(Tour tour, int u, int v) {
+        tour.swap(u, v);
+        _activeNodes.touch(tour, u);
+        _activeNodes.touch(tour, v);
+        _activeNodes.touch(tour, tour.prev(u));
+        _activeNodes.touch(tour, tour.next(u));
+        _activeNodes.touch(tour, tour.prev(v));
+        _activeNodes.touch(tour, tour.next(v));
+    }
+}
@@ -0,0 +1,256 @@
+package tsp.solver;
+
+import tsp.graph.Graph;
+import tsp.graph.NeighborLists;
+
+/**
+ * 3-opt local search over an array based tour using neighbour lists.
+ *
+ * Reading the tour from node 'a' as: a b..c d..e f.. (back to a), a 3-opt move removes the
+ * edges (a, b), (c, d) and (e, f) and reconnects the segments S1 = b..c and S2 = d..e in one
+ * of seven ways:
+ *   0. a c..b d..e f    (S1 reversed, 2-opt)
+ *   1. a b..c e..d f    (S2 reversed, 2-opt; covered by case 0 started from c)
+ *   2. a e..d c..b f    (S1 and S2 reversed as a whole, 2-opt)
+ *   3. a c..b e..d f    (S1 and S2 each reversed)
+ *   4. a d..e b..c f    (S1 and S2 swapped)
+ *   5. a d..e c..b f    (swapped, S1 reversed)
+ *   6. a e..d b..c f    (swapped, S2 reversed)
+ * Every case adds an edge from 'a', so the first endpoint is chosen from the neighbour list of
+ * 'a' (only neighbours closer than 'b'), and in the pure 3-opt cases the second added edge is
+ * chosen from the neighbour list of 'b'. Each move is scored from the six edges involved and
+ * applied as a sequence of 2-opt segment reversals. Nodes are examined from a queue of active
+ * nodes using don't-look bits, and the best move found from a node is applied.
+ */
+public class ThreeOpt implements LocalSearch {
+
+    private Graph _graph;
+    private int _neighborCount;
+    private DontLookBits _activeNodes = new DontLookBits();
+
+    // Tour and reading direction used while scanning moves from the current node 'a'
+    private Tour _tour;
+    private boolean _forward;
+    private int _origin;
+
+    // Best move found during the current scan
+    private long _bestGain;
+    private int _bestCase;
+    private int[] _bestNodes = new int[6];
+
+    public ThreeOpt(Graph graph, int neighborCount) {
+        _graph = graph;
+        _neighborCount = neighborCount;
+    }
+
+    /**
+     * Finds an improving 3-opt move (including 2-opt moves) for the tour and applies it: the best
+     * move from the first active node that has one. Returns the reduction in tour length, or 0 if
+     * the tour is already 3-optimal (with respect to the neighbour lists).
+     */
+    @Override
+    public long improve(Tour tour) {
+        int n = tour.size();
+        if (n < 5) return 0;
+
+        if (!_activeNodes.isResetFor(tour)) {
+            _activeNodes.reset(tour);
+        }
+
+        NeighborLists neighbors = _graph.getNeighborLists(_neighborCount);
+        _tour = tour;
+        long gain = 0;
+        while (gain == 0 && !_activeNodes.isEmpty()) {
+            _bestGain = 0;
+            scanFrom(neighbors, _activeNodes.poll());
+
+            gain = _bestGain;
+            if (gain > 0) {
+                applyMove(tour, _bestCase, _bestNodes);
+                for (int node : _bestNodes) {
+                    if (node != -1) {
+                        _activeNodes.touch(tour, node);
+                    }
+                }
+            }
+        }
+        _tour = null;
+        return gain;
+    }
+
+    @Override
+    public void activate(Tour tour, int node) {
+        _activeNodes.activate(tour, node);
+    }
+
+    @Override
+    public void setMoveObserver(LocalSearch observer) {
+        _activeNodes.setObserver(observer);
+    }
+
+    /**
+     * Scans the moves that add an edge from 'a' (in both reading directions), keeping the best one.
+     */
+    private void scanFrom(NeighborLists neighbors, int a) {
+        int n = _tour.size();
+        for (int direction = 0; direction < 2; direction++) {
+            _forward = (direction == 0);
+            _origin = _tour.position(a);
+
+            int b = succ(a);
+            int removedAB = _graph.distance(a, b);
+
+            for (int i = 0; i < neighbors.size(); i++) {
+                int x = neighbors.get(a, i);
+                int addedAX = _graph.distance(a, x);
+                if (addedAX >= removedAB) break;
+                if (x == b) continue;
+
+                int gain1 = removedAB - addedAX;
+                int rx = relative(x);
+
+                // x is 'c': cases 0 and 3
+                if (rx < n - 1) {
+                    int c = x;
+                    int d = succ(c);
+                    int removedCD = _graph.distance(c, d);
+                    consider(0, gain1 + removedCD - _graph.distance(b, d), a, b, c, d, -1, -1);
+
+                    for (int l = 0; l < neighbors.size(); l++) {
+                        int e = neighbors.get(b, l);
+                        int addedBE = _graph.distance(b, e);
+                        if (addedBE >= gain1 + removedCD) break;
+                        int re = relative(e);
+                        if (re <= rx || e == a) continue;
+
+                        int f = succ(e);
+                        long gain = gain1 + removedCD - addedBE + _graph.distance(e, f) - _graph.distance(d, f);
+                        consider(3, gain, a, b, c, d, e, f);
+                    }
+                }
+
+                // x is 'e': cases 2 and 6
+                if (rx >= 2 && rx <= n - 2) {
+                    int e = x;
+                    int f = succ(e);
+                    int removedEF = _graph.distance(e, f);
+                    consider(2, gain1 + removedEF - _graph.distance(b, f), a, b, -1, -1, e, f);
+
+                    for (int l = 0; l < neighbors.size(); l++) {
+                        int d = neighbors.get(b, l);
+                        int addedBD = _graph.distance(b, d);
+                        if (addedBD >= gain1 + removedEF) break;
+                        int rd = relative(d);
+                        if (rd < 2 || rd > rx) continue;
+
+                        int c = pred(d);
+                        long gain = gain1 + removedEF - addedBD + _graph.distance(c, d) - _graph.distance(c, f);
+                        consider(6, gain, a, b, c, d, e, f);
+                    }
+                }
+
+                // x is 'd': cases 4 and 5
+                if (rx >= 2) {
+                    int d = x;
+                    int c = pred(d);
+                    int removedCD = _graph.distance(c, d);
+
+                    for (int l = 0; l < neighbors.size(); l++) {
+                        int y = neighbors.get(b, l);
+                        int addedBY = _graph.distance(b, y);
+                        if (addedBY >= gain1 + removedCD) break;
+                        int ry = relative(y);
+
+                        // y is 'e': case 4
+                        if (ry >= rx) {
+                            int e = y;
+                            int f = succ(e);
+                            long gain = gain1 + removedCD - addedBY + _graph.distance(e, f) - _graph.distance(c, f);
+                            consider(4, gain, a, b, c, d, e, f);
+                        }
+
+                        // y is 'f': case 5
+                        if (ry > rx) {
+                            int f = y;
+                            int e = pred(f);
+                            long gain = gain1 + removedCD - addedBY + _graph.distance(e, f) - _graph.distance(c, e);
+                            consider(5, gain, a, b, c, d, e, f);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void consider(int moveCase, long gain, int a, int b, int c, int d, int e, int f) {
+        if (gain > _bestGain) {
+            _bestGain = gain;
+            _bestCase = moveCase;
+            _bestNodes[0] = a;
+            _bestNodes[1] = b;
+            _bestNodes[2] = c;
+            _bestNodes[3] = d;
+            _bestNodes[4] = e;
+            _bestNodes[5] = f;
+        }
+    }
+
+    /**
+     * Applies the reconnection (one of the cases listed above, nodes a to f) as a sequence of 2-opt moves.
+     */
+    static void applyMove(Tour tour, int moveCase, int[] nodes) {
+        int a = nodes[0];
+        int b = nodes[1];
+        int c = nodes[2];
+        int d = nodes[3];
+        int e = nodes[4];
+        int f = nodes[5];
+
+        switch (moveCase) {
+            case 0:
+                tour.twoOptMove(a, b, c, d);
+                break;
+            case 2:
+                tour.twoOptMove(a, b, e, f);
+                break;
+            case 3:
+                // a c..b d..e f -> a c..b e..d f
+                tour.twoOptMove(a, b, c, d);
+                tour.twoOptMove(b, d, e, f);
+                break;
+            case 4:
+                // a e..d c..b f -> a d..e c..b f -> a d..e b..c f
+                tour.twoOptMove(a, b, e, f);
+                tour.twoOptMove(a, e, d, c);
+                tour.twoOptMove(e, c, b, f);
+                break;
+            case 5:
+                // a e..d c..b f -> a d..e c..b f
+                tour.twoOptMove(a, b, e, f);
+                tour.twoOptMove(a, e, d, c);
+                break;
+            case 6:
+                // a e..d c..b f -> a e..d b..c f
+                tour.twoOptMove(a, b, e, f);
+                tour.twoOptMove(d, c, b, f);
+                break;
+        }
+    }
+
+    private int succ(int node) {
+        return _forward ? _tour.next(node) : _tour.prev(node);
+    }
+
+    private int pred(int node) {
+        return _forward ? _tour.prev(node) : _tour.next(node);
+    }
+
+    /**
+     * Returns the number of steps from 'a' to the node in the current reading direction.
+     */
+    private int relative(int node) {
+        int n = _tour.size();
+        int offset = _forward ? _tour.position(node) - _origin : _origin - _tour.position(node);
+        return (offset < 0) ? offset + n : offset;
+    }
+}
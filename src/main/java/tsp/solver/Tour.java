@@ -0,0 +1,193 @@
+package tsp.solver;
+
+import tsp.graph.Graph;
+
+import java.util.Arrays;
+
+/**
+ * Array based tour representation. The tour is stored as an ordering of node ids
+ * along with the inverse position lookup so both the node at a position and the
+ * position of a node can be retrieved in constant time. The edge from the last
+ * node back to the first is implied.
+ *
+ * After a checkpoint every change is recorded in a journal, so the tour can be rolled back
+ * to the checkpoint in time proportional to the changes made rather than the tour size.
+ */
+public class Tour {
+
+    private static final int JOURNAL_REVERSE = 0;
+    private static final int JOURNAL_SWAP = 1;
+
+    private int[] _order;
+    private int[] _position;
+
+    // Changes made since the last checkpoint (3 ints per entry: type and two positions)
+    private boolean _journaling = false;
+    private int[] _journal = new int[3 * 64];
+    private int _journalSize = 0;
+
+    public Tour(int[] order) {
+        _order = Arrays.copyOf(order, order.length);
+        _position = new int[order.length];
+        for (int i = 0; i < _order.length; i++) {
+            _position[_order[i]] = i;
+        }
+    }
+
+    public int size() {
+        return _order.length;
+    }
+
+    /**
+     * Returns the node at the specified position (positions wrap around the tour).
+     */
+    public int get(int index) {
+        return _order[wrap(index)];
+    }
+
+    /**
+     * Returns the position of the specified node in the tour.
+     */
+    public int position(int node) {
+        return _position[node];
+    }
+
+    public int next(int node) {
+        return get(_position[node] + 1);
+    }
+
+    public int prev(int node) {
+        return get(_position[node] - 1);
+    }
+
+    /**
+     * Exchanges the positions of the two nodes in the tour.
+     */
+    public void swap(int node1, int node2) {
+        int position1 = _position[node1];
+        int position2 = _position[node2];
+        record(JOURNAL_SWAP, position1, position2);
+        _order[position1] = node2;
+        _order[position2] = node1;
+        _position[node1] = position2;
+        _position[node2] = position1;
+    }
+
+    /**
+     * Reverses the nodes from position 'from' to position 'to' (both inclusive, wrapping around
+     * the end of the tour if from > to). Whichever of the segment or its complement is shorter
+     * is the one actually reversed; both produce the same cycle.
+     */
+    public void reverse(int from, int to) {
+        int n = _order.length;
+        from = wrap(from);
+        to = wrap(to);
+        int length = wrap(to - from) + 1;
+        if (length * 2 > n) {
+            int newFrom = wrap(to + 1);
+            to = wrap(from - 1);
+            from = newFrom;
+            length = n - length;
+        }
+        record(JOURNAL_REVERSE, from, length);
+        reverseSegment(from, length);
+    }
+
+    /**
+     * Reverses the 'length' nodes starting at position 'from' (wrapping around the end of the tour).
+     */
+    private void reverseSegment(int from, int length) {
+        int n = _order.length;
+        int to = wrap(from + length - 1);
+        for (int swaps = length / 2; swaps > 0; swaps--) {
+            int node1 = _order[from];
+            int node2 = _order[to];
+            _order[from] = node2;
+            _position[node2] = from;
+            _order[to] = node1;
+            _position[node1] = to;
+            from = (from + 1 == n) ? 0 : from + 1;
+            to = (to == 0) ? n - 1 : to - 1;
+        }
+    }
+
+    /**
+     * Removes the edges (a, b) and (c, d) and reconnects the tour with the edges (a, c) and (b, d).
+     * Requires that b follows a and d follows c when reading the tour in one of its two directions,
+     * so the move can be applied regardless of how earlier reversals oriented the array.
+     */
+    public void twoOptMove(int a, int b, int c, int d) {
+        if (next(a) == b) {
+            reverse(_position[b], _position[c]);
+        }
+        else {
+            reverse(_position[c], _position[b]);
+        }
+    }
+
+    /**
+     * Starts recording changes so they can be undone by rollback() (discarding any earlier record).
+     */
+    public void checkpoint() {
+        _journaling = true;
+        _journalSize = 0;
+    }
+
+    /**
+     * Keeps every change made since the checkpoint and stops recording.
+     */
+    public void commit() {
+        _journaling = false;
+        _journalSize = 0;
+    }
+
+    /**
+     * Undoes every change made since the checkpoint (most recent first) and stops recording.
+     */
+    public void rollback() {
+        _journaling = false;
+        for (int i = _journalSize - 3; i >= 0; i -= 3) {
+            int position1 = _journal[i + 1];
+            int position2 = _journal[i + 2];
+            if (_journal[i] == JOURNAL_REVERSE) {
+                reverseSegment(position1, position2);
+            }
+            else {
+                swap(_order[position1], _order[position2]);
+            }
+        }
+        _journalSize = 0;
+    }
+
+    private void record(int type, int value1, int value2) {
+        if (!_journaling) return;
+        if (_journalSize + 3 > _journal.length) {
+            _journal = Arrays.copyOf(_journal, _journal.length * 2);
+        }
+        _journal[_journalSize++] = type;
+        _journal[_journalSize++] = value1;
+        _journal[_journalSize++] = value2;
+    }
+
+    /**
+     * Returns a copy of the node ordering.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(_order, _order.length);
+    }
+
+    public long length(Graph graph) {
+        return graph.calculateTourLength(_order);
+    }
+
+    private int wrap(int index) {
+        int n = _order.length;
+        if (index >= n) {
+            index = (index < 2 * n) ? index - n : index % n;
+        }
+        else if (index < 0) {
+            index = (index >= -n) ? index + n : (index % n + n) % n;
+        }
+        return index;
+    }
+}
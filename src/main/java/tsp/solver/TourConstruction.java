@@ -0,0 +1,14 @@
+package tsp.solver;
+
+import tsp.graph.Graph;
+
+/**
+ * Common interface of the heuristics that build a start tour for the local searches.
+ */
+public interface TourConstruction {
+
+    /**
+     * Builds a tour visiting every node of the graph once, as an array of node ids.
+     */
+    int[] buildTour(Graph graph);
+}
@@ -0,0 +1,166 @@
+package tsp.solver;
+
+import tsp.graph.Graph;
+import tsp.graph.NeighborLists;
+
+/**
+ * 2-opt local search over an array based tour. A 2-opt move removes two non-adjacent edges
+ * (a, b) and (c, d) and reconnects the tour as (a, c) and (b, d), which is the same as
+ * reversing the path from b to c. The gain of each move only depends on those four edges
+ * so every candidate is scored in constant time and only the chosen move is applied.
+ *
+ * Only moves where the new edge (a, c) links a node to one of its k nearest neighbours are
+ * considered; an improving move must add at least one edge shorter than the edge it replaces
+ * at the same node, so scanning each neighbour list stops at the first neighbour that is
+ * further away than the current tour neighbour.
+ *
+ * In first-improvement mode (the default) the first improving move found is applied straight
+ * away and nodes are examined from a queue of active nodes using don't-look bits, so reaching
+ * a local optimum takes close to linear time. Best-improvement mode scans every node and
+ * applies only the best move, as a baseline for comparison.
+ */
+public class TwoOpt implements LocalSearch {
+
+    private Graph _graph;
+    private int _neighborCount;
+    private boolean _firstImprovement = true;
+    private DontLookBits _activeNodes = new DontLookBits();
+
+    public TwoOpt(Graph graph, int neighborCount) {
+        _graph = graph;
+        _neighborCount = neighborCount;
+    }
+
+    /**
+     * Selects between applying the first improving move found (true) or the best one (false).
+     */
+    public void setFirstImprovement(boolean firstImprovement) {
+        _firstImprovement = firstImprovement;
+    }
+
+    /**
+     * Finds an improving 2-opt move for the tour and applies it.
+     * Returns the reduction in tour length, or 0 if the tour is already 2-optimal
+     * (with respect to the neighbour lists).
+     */
+    @Override
+    public long improve(Tour tour) {
+        int n = tour.size();
+        if (n < 4) return 0;
+
+        NeighborLists neighbors = _graph.getNeighborLists(_neighborCount);
+        if (!_firstImprovement) {
+            return improveBest(tour, neighbors);
+        }
+
+        if (!_activeNodes.isResetFor(tour)) {
+            _activeNodes.reset(tour);
+        }
+        while (!_activeNodes.isEmpty()) {
+            long gain = improveFrom(tour, neighbors, _activeNodes.poll());
+            if (gain > 0) {
+                return gain;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void activate(Tour tour, int node) {
+        _activeNodes.activate(tour, node);
+    }
+
+    @Override
+    public void setMoveObserver(LocalSearch observer) {
+        _activeNodes.setObserver(observer);
+    }
+
+    /**
+     * Applies the first improving move that removes one of the tour edges next to 'a' and
+     * re-activates the endpoints of the changed edges. Returns the gain (or 0 if none was found).
+     */
+    private long improveFrom(Tour tour, NeighborLists neighbors, int a) {
+        for (int direction = 0; direction < 2; direction++) {
+            boolean forward = (direction == 0);
+            int b = forward ? tour.next(a) : tour.prev(a);
+            int removedAB = _graph.distance(a, b);
+
+            for (int i = 0; i < neighbors.size(); i++) {
+                int c = neighbors.get(a, i);
+                int addedAC = _graph.distance(a, c);
+                if (addedAC >= removedAB) break;
+
+                int d = forward ? tour.next(c) : tour.prev(c);
+                if (c == b || d == a) continue;
+
+                long gain = removedAB + _graph.distance(c, d) - addedAC - _graph.distance(b, d);
+                if (gain > 0) {
+                    if (forward) {
+                        tour.reverse(tour.position(b), tour.position(c));
+                    }
+                    else {
+                        tour.reverse(tour.position(a), tour.position(d));
+                    }
+                    _activeNodes.touch(tour, a);
+                    _activeNodes.touch(tour, b);
+                    _activeNodes.touch(tour, c);
+                    _activeNodes.touch(tour, d);
+                    return gain;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Scans the neighbourhood of every node and applies the best improving move.
+     */
+    private long improveBest(Tour tour, NeighborLists neighbors) {
+        int n = tour.size();
+        long bestGain = 0;
+        int[] bestNodes = new int[4];
+        boolean bestForward = false;
+
+        for (int a = 0; a < n; a++) {
+            // Try both tour neighbours of 'a' as the node 'b' whose edge is removed
+            for (int direction = 0; direction < 2; direction++) {
+                boolean forward = (direction == 0);
+                int b = forward ? tour.next(a) : tour.prev(a);
+                int removedAB = _graph.distance(a, b);
+
+                for (int i = 0; i < neighbors.size(); i++) {
+                    int c = neighbors.get(a, i);
+                    int addedAC = _graph.distance(a, c);
+                    if (addedAC >= removedAB) break;
+
+                    int d = forward ? tour.next(c) : tour.prev(c);
+                    if (c == b || d == a) continue;
+
+                    long gain = removedAB + _graph.distance(c, d) - addedAC - _graph.distance(b, d);
+                    if (gain > bestGain) {
+                        bestGain = gain;
+                        bestNodes[0] = a;
+                        bestNodes[1] = b;
+                        bestNodes[2] = c;
+                        bestNodes[3] = d;
+                        bestForward = forward;
+                    }
+                }
+            }
+        }
+
+        if (bestGain > 0) {
+            // Reversing b..c (forward) or a..d (backward) produces edges (a, c) and (b, d)
+            if (bestForward) {
+                tour.reverse(tour.position(bestNodes[1]), tour.position(bestNodes[2]));
+            }
+            else {
+                tour.reverse(tour.position(bestNodes[0]), tour.position(bestNodes[3]));
+            }
+            for (int node : bestNodes) {
+                _activeNodes.touch(tour, node);
+            }
+        }
+        return bestGain;
+    }
+}
@@ -0,0 +1,170 @@
+package tsp.solver;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import tsp.graph.DistanceMetric;
+import tsp.graph.Graph;
+
+import java.util.Random;
+
+public class TourTest {
+
+    private static final int NEIGHBOR_COUNT = 8;
+
+    @Test
+    public void rollbackRestoresTourAfterRandomChanges() {
+        Random random = new Random(1);
+        for (int n : new int[] { 5, 6, 7, 20, 101, 500 }) {
+            Tour tour = new Tour(randomOrder(n, random));
+            for (int round = 0; round < 200; round++) {
+                int[] before = tour.toArray();
+                tour.checkpoint();
+                int changes = 1 + random.nextInt(20);
+                for (int i = 0; i < changes; i++) {
+                    applyRandomChange(tour, random);
+                }
+                tour.rollback();
+                assertTour(before, tour);
+
+                // Keep some of the rounds so later checkpoints start from different tours
+                if (random.nextBoolean()) {
+                    tour.checkpoint();
+                    applyRandomChange(tour, random);
+                    int[] committed = tour.toArray();
+                    tour.commit();
+                    tour.rollback();
+                    assertTour(committed, tour);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void improveGainsMatchLengthChange() {
+        Graph graph = randomGraph(200, new Random(2));
+        for (LocalSearch localSearch : localSearches(graph)) {
+            Random random = new Random(3);
+            Tour tour = new Tour(randomOrder(graph.getNodeCount(), random));
+            descend(graph, localSearch, tour);
+
+            // Kick the local optimum, re-optimise around the kick and roll it back, as iterated local search does
+            for (int kick = 0; kick < 50; kick++) {
+                long optimumLength = tour.length(graph);
+                int[] optimum = tour.toArray();
+                tour.checkpoint();
+                int[] nodes = randomKick(tour, random);
+                ThreeOpt.applyMove(tour, 4, nodes);
+                for (int node : nodes) {
+                    localSearch.activate(tour, node);
+                }
+                descend(graph, localSearch, tour);
+                tour.rollback();
+                assertTour(optimum, tour);
+                assertEquals(optimumLength, tour.length(graph));
+            }
+        }
+    }
+
+    /**
+     * Applies improving moves until the search finds none, checking each reported gain against the tour length.
+     */
+    private static void descend(Graph graph, LocalSearch localSearch, Tour tour) {
+        long length = tour.length(graph);
+        long gain;
+        while ((gain = localSearch.improve(tour)) > 0) {
+            long newLength = tour.length(graph);
+            assertEquals(length - newLength, gain, localSearch.getClass().getSimpleName() + " gain");
+            length = newLength;
+        }
+        assertEquals(length, tour.length(graph));
+    }
+
+    private static LocalSearch[] localSearches(Graph graph) {
+        TwoOpt bestTwoOpt = new TwoOpt(graph, NEIGHBOR_COUNT);
+        bestTwoOpt.setFirstImprovement(false);
+        SwapHillClimbing bestSwaps = new SwapHillClimbing(graph);
+        bestSwaps.setFirstImprovement(false);
+        return new LocalSearch[] {
+            new TwoOpt(graph, NEIGHBOR_COUNT),
+            bestTwoOpt,
+            new ThreeOpt(graph, NEIGHBOR_COUNT),
+            new OrOpt(graph, NEIGHBOR_COUNT),
+            new LinKernighan(graph, NEIGHBOR_COUNT),
+            new SwapHillClimbing(graph),
+            bestSwaps
+        };
+    }
+
+    private static void applyRandomChange(Tour tour, Random random) {
+        int n = tour.size();
+        switch (random.nextInt(4)) {
+            case 0:
+                tour.reverse(random.nextInt(3 * n) - n, random.nextInt(3 * n) - n);
+                break;
+            case 1:
+                tour.swap(random.nextInt(n), random.nextInt(n));
+                break;
+            case 2:
+                int a = random.nextInt(n);
+                int c = tour.get(tour.position(a) + 2 + random.nextInt(n - 3));
+                if (random.nextBoolean()) {
+                    tour.twoOptMove(a, tour.next(a), c, tour.next(c));
+                }
+                else {
+                    tour.twoOptMove(a, tour.prev(a), c, tour.prev(c));
+                }
+                break;
+            default:
+                ThreeOpt.applyMove(tour, 4, randomKick(tour, random));
+                break;
+        }
+    }
+
+    /**
+     * Returns the nodes a to f of a random double-bridge kick (a b..c d..e f).
+     */
+    private static int[] randomKick(Tour tour, Random random) {
+        int n = tour.size();
+        int origin = random.nextInt(n);
+        int cut1 = 1 + random.nextInt(n - 4);
+        int cut2 = cut1 + 1 + random.nextInt(n - 3 - cut1);
+        return new int[] {
+            tour.get(origin), tour.get(origin + 1),
+            tour.get(origin + cut1), tour.get(origin + cut1 + 1),
+            tour.get(origin + cut2), tour.get(origin + cut2 + 1)
+        };
+    }
+
+    private static void assertTour(int[] expectedOrder, Tour tour) {
+        assertEquals(expectedOrder.length, tour.size());
+        assertArrayEquals(expectedOrder, tour.toArray());
+        for (int i = 0; i < expectedOrder.length; i++) {
+            assertEquals(i, tour.position(expectedOrder[i]));
+        }
+    }
+
+    private static int[] randomOrder(int n, Random random) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        return order;
+    }
+
+    private static Graph randomGraph(int n, Random random) {
+        double[] xCoords = new double[n];
+        double[] yCoords = new double[n];
+        for (int i = 0; i < n; i++) {
+            xCoords[i] = random.nextInt(10000);
+            yCoords[i] = random.nextInt(10000);
+        }
+        Graph graph = new Graph();
+        graph.load(xCoords, yCoords, n, DistanceMetric.EUC_2D);
+        return graph;
+    }
+}